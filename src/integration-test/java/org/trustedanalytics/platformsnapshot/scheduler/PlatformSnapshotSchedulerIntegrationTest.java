@@ -38,9 +38,16 @@ import org.trustedanalytics.platformsnapshot.Application;
 import org.trustedanalytics.platformsnapshot.client.TapOperations;
 import org.trustedanalytics.platformsnapshot.client.TapRxClient;
 import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
 import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotRepository;
+import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotWriter;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotScheduleStore;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotTriggerQueue;
 import org.trustedanalytics.platformsnapshot.service.PlatformSnapshotScheduler;
+import org.trustedanalytics.platformsnapshot.service.ResilienceConfiguration;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+import rx.schedulers.Schedulers;
 
 import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
 import java.util.Properties;
@@ -72,6 +79,15 @@ public class PlatformSnapshotSchedulerIntegrationTest {
     @Autowired
     PlatformSnapshotRepository platformSnapshotRepository;
 
+    @Autowired
+    PlatformSnapshotWriter platformSnapshotWriter;
+
+    @Autowired
+    SnapshotTriggerQueue snapshotTriggerQueue;
+
+    @Autowired
+    SnapshotScheduleStore snapshotScheduleStore;
+
     @ClassRule
     public static EmbeddedPostgreSQLRule pg = new EmbeddedPostgreSQLRule();
 
@@ -99,7 +115,9 @@ public class PlatformSnapshotSchedulerIntegrationTest {
                 .logLevel(Logger.Level.BASIC)
                 .target(CdhOperations.class, String.format("http://%s:%s", "localhost", wireMockRule.port()));
 
-        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotRepository, cdhOperations);
+        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotWriter, cdhOperations,
+                () -> true, snapshotTriggerQueue, snapshotScheduleStore,
+                new UpstreamGuards(new ResilienceConfiguration(), Schedulers.io()), new SnapshotConfiguration());
 
         final String clusters= loadJson("cdhcluster.json");
 
@@ -15,9 +15,8 @@
  */
 package org.trustedanalytics.platformsnapshot;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import feign.Client;
 import feign.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -26,13 +25,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.security.oauth2.client.resource.OAuth2ProtectedResourceDetails;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
 import org.trustedanalytics.platformsnapshot.client.TapOperations;
 import org.trustedanalytics.platformsnapshot.client.TapRxClient;
 import org.trustedanalytics.platformsnapshot.client.LocalDateTimeDeserializer;
+import org.trustedanalytics.platformsnapshot.client.replay.RecordingClient;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
 import org.trustedanalytics.platformsnapshot.client.uaa.CachedUaaOperations;
 import org.trustedanalytics.platformsnapshot.client.uaa.OAuth2PrivilegedInterceptor;
 import org.trustedanalytics.platformsnapshot.client.uaa.UaaOperations;
 import org.trustedanalytics.platformsnapshot.security.OAuth2TokenSupplier;
+import org.trustedanalytics.platformsnapshot.service.PlatformSnapshotScheduler;
+import org.trustedanalytics.platformsnapshot.service.ResilienceConfiguration;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @Profile("cloud")
@@ -60,16 +68,32 @@ public class ApplicationConfiguration {
 
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper()
-            .setPropertyNamingStrategy(new PropertyNamingStrategy.LowerCaseWithUnderscoresStrategy())
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return JsonMapping.newTapMapper();
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService collectionExecutor(SnapshotConfiguration snapshotConfiguration) {
+        return PlatformSnapshotScheduler.collectionExecutor(snapshotConfiguration);
     }
 
     @Bean
-    public TapOperations tapRxClient(OAuth2PrivilegedInterceptor oauth2PrivilegedInterceptor) {
+    @Profile("!replay")
+    public TapOperations tapRxClient(OAuth2PrivilegedInterceptor oauth2PrivilegedInterceptor,
+                                     Client feignClient,
+                                     SnapshotConfiguration snapshotConfiguration,
+                                     ExecutorService collectionExecutor) {
         return new TapRxClient(builder -> builder
             .requestInterceptor(oauth2PrivilegedInterceptor)
-            .logLevel(Logger.Level.BASIC), tapApiUrl);
+            .client(RecordingClient.recording(feignClient, snapshotConfiguration.getRecordingDirectory()))
+            .logLevel(Logger.Level.BASIC), tapApiUrl,
+            snapshotConfiguration.getTapPageSize(), snapshotConfiguration.getTapPageConcurrency(),
+            Schedulers.from(collectionExecutor));
+    }
+
+    @Bean
+    public UpstreamGuards upstreamGuards(ResilienceConfiguration resilienceConfiguration,
+                                         ExecutorService collectionExecutor) {
+        return new UpstreamGuards(resilienceConfiguration, Schedulers.from(collectionExecutor));
     }
 
     @Bean
@@ -78,8 +102,10 @@ public class ApplicationConfiguration {
     }
 
     @Bean
-    public UaaOperations uaaOperations(@Value("${uaaUri}") String uaaUri, OAuth2ProtectedResourceDetails clientCredentials) {
-        return new CachedUaaOperations( uaaUri, clientCredentials.getClientId(), clientCredentials.getClientSecret());
+    public UaaOperations uaaOperations(@Value("${uaaUri}") String uaaUri, OAuth2ProtectedResourceDetails clientCredentials,
+                                       Client feignClient) {
+        return new CachedUaaOperations( uaaUri, clientCredentials.getClientId(), clientCredentials.getClientSecret(),
+            feignClient);
     }
 
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot;
+
+import feign.RequestInterceptor;
+import feign.auth.BasicAuthRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.TapRxClient;
+import org.trustedanalytics.platformsnapshot.client.async.AsyncCdhClient;
+import org.trustedanalytics.platformsnapshot.client.async.AsyncRequests;
+import org.trustedanalytics.platformsnapshot.client.async.AsyncTapClient;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiters;
+import org.trustedanalytics.platformsnapshot.client.uaa.OAuth2PrivilegedInterceptor;
+import org.trustedanalytics.platformsnapshot.service.ClouderaConfiguration;
+import org.trustedanalytics.platformsnapshot.service.HttpConfiguration;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+import rx.schedulers.Schedulers;
+
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces the Feign clients of TAP and Cloudera Manager with clients on a non-blocking
+ * HTTP client when snapshot.asyncClients is enabled. They page TAP listings and pass the
+ * adaptive limit like the Feign clients, but bypass the conditional GET cache. Recording
+ * is a layer of the Feign clients only, so enabling it together with the non-blocking
+ * clients fails at startup instead of silently recording nothing.
+ */
+public class AsyncClientConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncClientConfiguration.class);
+
+    @Value("${api.service}")
+    private String tapApiUrl;
+
+    // Cloudera trust store, not available in the replay profile
+    @Autowired(required = false)
+    private SSLContext sslContext;
+
+    @Bean
+    public CloseableHttpAsyncClient httpAsyncClient(HttpConfiguration httpConfiguration,
+                                                    SnapshotConfiguration snapshotConfiguration)
+        throws IOReactorException, NoSuchAlgorithmException {
+        checkSupported(httpConfiguration, snapshotConfiguration);
+        final Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+            .register("http", NoopIOSessionStrategy.INSTANCE)
+            .register("https", new SSLIOSessionStrategy(sslContext != null ? sslContext : SSLContext.getDefault()))
+            .build();
+        final PoolingNHttpClientConnectionManager connectionManager =
+            new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(), sessionStrategies);
+        connectionManager.setMaxTotal(httpConfiguration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(httpConfiguration.getMaxConnectionsPerRoute());
+
+        final CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(TapRxClient.CONNECT_TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(TapRxClient.CONNECT_TIMEOUT_MILLIS)
+                .setSocketTimeout(TapRxClient.READ_TIMEOUT_MILLIS)
+                .build())
+            .build();
+        client.start();
+        return client;
+    }
+
+    @Bean
+    @Primary
+    @Profile("!replay")
+    public TapOperations asyncTapClient(CloseableHttpAsyncClient httpAsyncClient,
+                                        OAuth2PrivilegedInterceptor oauth2PrivilegedInterceptor,
+                                        HttpConfiguration httpConfiguration,
+                                        SnapshotConfiguration snapshotConfiguration,
+                                        AdaptiveLimiters adaptiveLimiters,
+                                        ExecutorService collectionExecutor) {
+        return new AsyncTapClient(requests(httpAsyncClient, httpConfiguration, adaptiveLimiters, collectionExecutor,
+            oauth2PrivilegedInterceptor), tapApiUrl,
+            snapshotConfiguration.getTapPageSize(), snapshotConfiguration.getTapPageConcurrency());
+    }
+
+    @Bean
+    @Primary
+    @Profile("!replay")
+    public CdhOperations asyncCdhClient(CloseableHttpAsyncClient httpAsyncClient,
+                                        ClouderaConfiguration clouderaConfiguration,
+                                        HttpConfiguration httpConfiguration,
+                                        AdaptiveLimiters adaptiveLimiters,
+                                        ExecutorService collectionExecutor) {
+        return new AsyncCdhClient(requests(httpAsyncClient, httpConfiguration, adaptiveLimiters, collectionExecutor,
+            new BasicAuthRequestInterceptor(clouderaConfiguration.getUser(), clouderaConfiguration.getPassword())),
+            String.format("https://%s:%s", clouderaConfiguration.getHost(), clouderaConfiguration.getPort()));
+    }
+
+    private static AsyncRequests requests(CloseableHttpAsyncClient httpAsyncClient, HttpConfiguration httpConfiguration,
+                                          AdaptiveLimiters adaptiveLimiters, ExecutorService collectionExecutor,
+                                          RequestInterceptor interceptor) {
+        if (!httpConfiguration.isAdaptiveLimit()) {
+            return new AsyncRequests(httpAsyncClient, Schedulers.from(collectionExecutor), interceptor);
+        }
+        return new AsyncRequests(httpAsyncClient, Schedulers.from(collectionExecutor), adaptiveLimiters,
+            TimeUnit.SECONDS.toMillis(httpConfiguration.getLimitMaxWaitSeconds()), interceptor);
+    }
+
+    private static void checkSupported(HttpConfiguration httpConfiguration,
+                                       SnapshotConfiguration snapshotConfiguration) {
+        if (StringUtils.hasText(snapshotConfiguration.getRecordingDirectory())) {
+            throw new IllegalStateException("snapshot.asyncClients does not support snapshot.recordingDirectory, "
+                + "turn it off or use the Feign clients");
+        }
+        if (httpConfiguration.isCacheEnabled()) {
+            LOGGER.info("TAP and Cloudera Manager reads of snapshot.asyncClients bypass the conditional GET cache");
+        }
+    }
+}
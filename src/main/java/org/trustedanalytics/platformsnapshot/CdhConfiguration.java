@@ -15,25 +15,25 @@
  */
 package org.trustedanalytics.platformsnapshot;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.Client;
 import feign.Feign;
 import feign.Logger;
 import feign.auth.BasicAuthRequestInterceptor;
-import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.slf4j.Slf4jLogger;
 import org.apache.http.conn.ssl.SSLContexts;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.cache.CachingDecoder;
 import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.decoder.JsonReaderDecoder;
+import org.trustedanalytics.platformsnapshot.client.replay.RecordingClient;
 import org.trustedanalytics.platformsnapshot.service.ClouderaConfiguration;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
 
-import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
@@ -44,24 +44,22 @@ import java.security.KeyStore;
 public class CdhConfiguration {
 
     @Bean
-    public CdhOperations cdhOperations(SSLContext sslContext, ClouderaConfiguration clouderaConfiguration) {
-
-        ObjectMapper objectMapper = new ObjectMapper()
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
-        Client sslClient = new Client.Default((SSLSocketFactory)SSLSocketFactory.getDefault(),null);
+    @Profile("!replay")
+    public CdhOperations cdhOperations(Client feignClient, ClouderaConfiguration clouderaConfiguration,
+                                       SnapshotConfiguration snapshotConfiguration) {
 
         return Feign.builder()
-            .encoder(new JacksonEncoder(objectMapper))
-                .decoder(new JacksonDecoder(objectMapper))
+            .encoder(new JacksonEncoder(JsonMapping.cdh().mapper()))
+                .decoder(new CachingDecoder(new JsonReaderDecoder(JsonMapping.cdh())))
                 .logger(new Slf4jLogger(CdhOperations.class))
                 .requestInterceptor(new BasicAuthRequestInterceptor(clouderaConfiguration.getUser(), clouderaConfiguration.getPassword()))
-                .client(sslClient)
+                .client(RecordingClient.recording(feignClient, snapshotConfiguration.getRecordingDirectory()))
                 .logLevel(Logger.Level.FULL)
                 .target(CdhOperations.class, String.format("https://%s:%s", clouderaConfiguration.getHost(), clouderaConfiguration.getPort()));
     }
 
     @Bean
+    @Profile("!replay")
     public SSLContext getSSLContext(ClouderaConfiguration clouderaConfiguration) throws IOException, GeneralSecurityException {
         if (clouderaConfiguration == null) {
             throw new IllegalStateException("Empty cloudera configuration");
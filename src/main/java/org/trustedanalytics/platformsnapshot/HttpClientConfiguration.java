@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.trustedanalytics.platformsnapshot.client.cache.ConditionalGetClient;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiter;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiters;
+import org.trustedanalytics.platformsnapshot.client.resilience.LimitingClient;
+import org.trustedanalytics.platformsnapshot.service.HttpConfiguration;
+
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Pooled keep-alive transport of all Feign clients. Connections, and with them TLS
+ * sessions, are reused across snapshots instead of being opened for every request.
+ */
+@Configuration
+@Profile("cloud")
+public class HttpClientConfiguration {
+
+    // Cloudera trust store, not available in the replay profile
+    @Autowired(required = false)
+    private SSLContext sslContext;
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpConnectionManager(HttpConfiguration httpConfiguration)
+        throws NoSuchAlgorithmException {
+        final Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SSLConnectionSocketFactory(sslContext != null ? sslContext : SSLContext.getDefault()))
+            .build();
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+        connectionManager.setMaxTotal(httpConfiguration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(httpConfiguration.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(httpConfiguration.getValidateAfterInactivityMillis());
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager,
+                                          HttpConfiguration httpConfiguration) {
+        final long keepAlive = TimeUnit.SECONDS.toMillis(httpConfiguration.getKeepAliveSeconds());
+        return HttpClients.custom()
+            .setConnectionManager(httpConnectionManager)
+            .setKeepAliveStrategy((response, context) -> {
+                final long announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return announced > 0 ? Math.min(announced, keepAlive) : keepAlive;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @Bean
+    public AdaptiveLimiters adaptiveLimiters(HttpConfiguration httpConfiguration) {
+        return new AdaptiveLimiters(host -> new AdaptiveLimiter(host, httpConfiguration.getLimitInitial(),
+            httpConfiguration.getLimitMin(), httpConfiguration.getLimitMax(),
+            httpConfiguration.getLimitLatencyTolerance(), httpConfiguration.getLimitBackoffRatio()));
+    }
+
+    @Bean
+    public Client feignClient(CloseableHttpClient httpClient, AdaptiveLimiters adaptiveLimiters,
+                              HttpConfiguration httpConfiguration) {
+        Client client = new ApacheHttpClient(httpClient);
+        if (httpConfiguration.isAdaptiveLimit()) {
+            client = new LimitingClient(client, adaptiveLimiters,
+                TimeUnit.SECONDS.toMillis(httpConfiguration.getLimitMaxWaitSeconds()));
+        }
+        if (!httpConfiguration.isCacheEnabled()) {
+            return client;
+        }
+        return new ConditionalGetClient(client, httpConfiguration.getCacheMaxEntries(),
+            httpConfiguration.getCacheMaxBodyKilobytes() * 1024);
+    }
+
+    @Bean
+    public PublicMetrics httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return () -> {
+            final PoolStats stats = httpConnectionManager.getTotalStats();
+            return Arrays.<Metric<?>>asList(
+                new Metric<Number>("http.pool.leased", stats.getLeased()),
+                new Metric<Number>("http.pool.available", stats.getAvailable()),
+                new Metric<Number>("http.pool.pending", stats.getPending()),
+                new Metric<Number>("http.pool.max", stats.getMax()));
+        };
+    }
+
+    @Bean
+    public PublicMetrics adaptiveLimitMetrics(AdaptiveLimiters adaptiveLimiters) {
+        return () -> adaptiveLimiters.all().stream()
+            .flatMap(limiter -> Stream.<Metric<?>>of(
+                new Metric<Number>("http.limit." + limiter.getName(), limiter.getLimit()),
+                new Metric<Number>("http.inflight." + limiter.getName(), limiter.getInFlight())))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.trustedanalytics.platformsnapshot.security.LocalJwtTokenServices;
+import org.trustedanalytics.platformsnapshot.security.SigningKeys;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Verifies access tokens locally against the UAA signing keys when snapshot.localJwtValidation
+ * is enabled. The keys are fetched on start and refreshed in the background, periodically
+ * and when a token names an unknown key.
+ */
+@Configuration
+@Profile("cloud")
+@ConditionalOnProperty(name = "snapshot.localJwtValidation", havingValue = "true")
+public class LocalJwtConfiguration {
+
+    private final ScheduledExecutorService keyRefresher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("jwt-key-refresh-%d").setDaemon(true).build());
+
+    @Bean
+    public SigningKeys signingKeys(@Value("${spring.oauth2.resource.jwt.keyUri}") String keyUri,
+                                   SnapshotConfiguration snapshotConfiguration) {
+        final SigningKeys signingKeys = new SigningKeys(keyUri, keyRefresher);
+        signingKeys.refresh();
+        final long period = snapshotConfiguration.getJwtKeyRefreshMinutes();
+        keyRefresher.scheduleWithFixedDelay(signingKeys::refresh, period, period, TimeUnit.MINUTES);
+        return signingKeys;
+    }
+
+    @Bean
+    @Primary
+    public ResourceServerTokenServices localJwtTokenServices(SigningKeys signingKeys) {
+        return new LocalJwtTokenServices(signingKeys);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        keyRefresher.shutdownNow();
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.replay.ReplayCdhOperations;
+import org.trustedanalytics.platformsnapshot.client.replay.ReplayTapOperations;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Collects snapshots from responses recorded in snapshot.replayDirectory instead of
+ * a live platform. Activated together with the cloud profile.
+ */
+@Configuration
+@Profile("replay")
+public class ReplayConfiguration {
+
+    @Bean
+    public TapOperations replayTapOperations(SnapshotConfiguration snapshotConfiguration) {
+        return new ReplayTapOperations(replayDirectory(snapshotConfiguration), snapshotConfiguration.getReplayScale());
+    }
+
+    @Bean
+    public CdhOperations replayCdhOperations(SnapshotConfiguration snapshotConfiguration) {
+        return new ReplayCdhOperations(replayDirectory(snapshotConfiguration), snapshotConfiguration.getReplayScale());
+    }
+
+    private Path replayDirectory(SnapshotConfiguration snapshotConfiguration) {
+        if (!StringUtils.hasText(snapshotConfiguration.getReplayDirectory())) {
+            throw new IllegalStateException("snapshot.replayDirectory is required in the replay profile");
+        }
+        return Paths.get(snapshotConfiguration.getReplayDirectory());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.entity.TapService;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JSON mapping of the TAP and Cloudera Manager APIs shared by all clients. Mappers use
+ * bytecode generated accessors instead of reflection, and readers are resolved once per
+ * type, the DTOs read during every snapshot right away.
+ *
+ * The shared mappers must not be reconfigured.
+ */
+public final class JsonMapping {
+
+    private static final JsonMapping TAP = new JsonMapping(newTapMapper(),
+        TapApplication.class, TapService.class, TapInfo.class);
+    private static final JsonMapping CDH = new JsonMapping(newCdhMapper(),
+        CdhClusters.class, CdhServices.class);
+
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JsonMapping(ObjectMapper mapper, Class<?>... prefetched) {
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+        for (Class<?> type : prefetched) {
+            reader(type);
+        }
+    }
+
+    public static JsonMapping tap() {
+        return TAP;
+    }
+
+    public static JsonMapping cdh() {
+        return CDH;
+    }
+
+    /**
+     * Mapper of the TAP API: snake case properties and lenient about unknown ones.
+     */
+    public static ObjectMapper newTapMapper() {
+        final SimpleModule simpleModule = new SimpleModule();
+        simpleModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer());
+
+        return new ObjectMapper()
+            .setPropertyNamingStrategy(new PropertyNamingStrategy.LowerCaseWithUnderscoresStrategy())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(simpleModule)
+            .registerModule(new AfterburnerModule());
+    }
+
+    /**
+     * Mapper of the Cloudera Manager API: camel case properties and lenient about unknown ones.
+     */
+    public static ObjectMapper newCdhMapper() {
+        return new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(new AfterburnerModule());
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public ObjectReader reader(Type type) {
+        return reader(mapper.constructType(type));
+    }
+
+    public ObjectReader reader(JavaType type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+}
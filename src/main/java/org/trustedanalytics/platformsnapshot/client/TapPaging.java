@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustedanalytics.platformsnapshot.client;
+
+import feign.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Paging of the TAP listings: pages are requested with page and per_page, the first page
+ * reports the total count in X-Total-Count or links the next page in the Link header.
+ */
+public final class TapPaging {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TapPaging.class);
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]*)>\\s*;\\s*rel=\"?next\"?");
+
+    private TapPaging() {
+    }
+
+    public static URI page(String apiBaseUrl, String path, int page, int pageSize) {
+        return URI.create(apiBaseUrl + path + "?page=" + page + "&per_page=" + pageSize);
+    }
+
+    /**
+     * @return the number of pages announced by the response, or nothing when it has no
+     * total count; a malformed total count is treated as missing, so the listing follows
+     * next links instead
+     */
+    public static Optional<Integer> pages(Response response, int pageSize) {
+        return header(response, "X-Total-Count").findFirst()
+            .flatMap(TapPaging::count)
+            .map(total -> (total + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * @return the next page linked by the response to uri, resolved against uri
+     */
+    public static Optional<URI> next(URI uri, Response response) {
+        return header(response, "Link")
+            .map(NEXT_LINK::matcher)
+            .filter(Matcher::find)
+            .findFirst()
+            .map(next -> uri.resolve(next.group(1)));
+    }
+
+    private static Optional<Integer> count(String header) {
+        try {
+            return Optional.of(Integer.valueOf(header.trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring malformed X-Total-Count: {}", header);
+            return Optional.empty();
+        }
+    }
+
+    private static Stream<String> header(Response response, String name) {
+        return response.headers().entrySet().stream()
+            .filter(header -> name.equalsIgnoreCase(header.getKey()))
+            .flatMap(header -> header.getValue().stream());
+    }
+}
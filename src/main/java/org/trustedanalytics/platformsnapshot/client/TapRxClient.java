@@ -15,50 +15,79 @@
  */
 package org.trustedanalytics.platformsnapshot.client;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import feign.Feign;
 import feign.Feign.Builder;
+import feign.FeignException;
+import feign.Headers;
 import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.Util;
 import feign.jackson.JacksonEncoder;
 import feign.slf4j.Slf4jLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.trustedanalytics.platformsnapshot.client.cache.CachingDecoder;
 import org.trustedanalytics.platformsnapshot.client.decoder.TapRxDecoder;
 import org.trustedanalytics.platformsnapshot.client.entity.*;
 import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
 
 import java.net.URI;
-import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.function.Function;
 
 public class TapRxClient implements TapOperations {
     private static final Logger LOGGER = LoggerFactory.getLogger(TapRxClient.class);
+    public static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+    public static final int READ_TIMEOUT_MILLIS = 10_000;
 
     private final TapOperations tapOperations;
+    private final TapResponses tapResponses;
+    private final TapRxDecoder decoder;
+    private final String apiBaseUrl;
+    private final int pageSize;
+    private final int pageConcurrency;
+    private final Scheduler pageScheduler;
 
     public TapRxClient(Function<Builder, Builder> customizations, String apiBaseUrl) {
+        this(customizations, apiBaseUrl, 0, 1, Schedulers.immediate());
+    }
 
-        final SimpleModule simpleModule = new SimpleModule();
-        simpleModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer());
+    /**
+     * With a positive pageSize applications and offerings are listed page by page. When the
+     * first page reports the total count in X-Total-Count, the remaining pages are fetched
+     * pageConcurrency at a time on the pageScheduler, otherwise next links in the Link header
+     * are followed.
+     */
+    public TapRxClient(Function<Builder, Builder> customizations, String apiBaseUrl, int pageSize, int pageConcurrency,
+                       Scheduler pageScheduler) {
 
-        final ObjectMapper mapper = new ObjectMapper()
-            .setPropertyNamingStrategy(new PropertyNamingStrategy.LowerCaseWithUnderscoresStrategy())
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
-            .registerModule(simpleModule);
+        final JsonMapping mapping = JsonMapping.tap();
+        decoder = new TapRxDecoder(mapping);
+        this.apiBaseUrl = apiBaseUrl;
+        this.pageSize = pageSize;
+        this.pageConcurrency = Math.max(1, pageConcurrency);
+        this.pageScheduler = Objects.requireNonNull(pageScheduler, "pageScheduler");
 
-        tapOperations = customizations.apply(Feign.builder()
-            .encoder(new JacksonEncoder(mapper))
-            .decoder(new TapRxDecoder(mapper))
+        final Builder builder = customizations.apply(Feign.builder()
+            .encoder(new JacksonEncoder(mapping.mapper()))
+            .decoder(new CachingDecoder(decoder))
             .logger(new Slf4jLogger(TapRxClient.class))
-            .options(new Request.Options(30_1000, 10_1000)))
-            .target(TapOperations.class, apiBaseUrl);
+            .options(new Request.Options(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS)));
+        tapOperations = builder.target(TapOperations.class, apiBaseUrl);
+        tapResponses = builder.target(TapResponses.class, apiBaseUrl);
     }
 
     @Override
-    public Observable<TapApplication> getApplications() { return tapOperations.getApplications(); }
+    public Observable<TapApplication> getApplications() {
+        if (pageSize > 0) {
+            return pages("/v3/applications", TapApplication.class);
+        }
+        return stream("TapOperations#getApplications()", tapResponses::getApplications, TapApplication.class);
+    }
 
     @Override
     public Observable<TapInfo> getTapInfo() {
@@ -67,11 +96,91 @@ public class TapRxClient implements TapOperations {
 
     @Override
     public Observable<TapService> getServices() {
-         return tapOperations.getServices().doOnNext(tapService -> LOGGER.info("service: {}", tapService));
+        final Observable<TapService> services = pageSize > 0
+            ? pages("/v3/offerings", TapService.class)
+            : stream("TapOperations#getServices()", tapResponses::getServices, TapService.class);
+        return services.doOnNext(tapService -> LOGGER.info("service: {}", tapService));
     }
 
+    /**
+     * Lists offerings starting at the given page and follows its next links.
+     */
     @Override
     public Observable<TapService> getServices(URI uri) {
-        return tapOperations.getServices(uri);
+        return follow(uri, TapService.class);
+    }
+
+    private <T> Observable<T> pages(String path, Class<T> type) {
+        return Observable.defer(() -> {
+            final URI firstPage = page(path, 1);
+            final Response first = fetch(firstPage);
+            try {
+                final Integer pages = TapPaging.pages(first, pageSize).orElse(null);
+                if (pages == null) {
+                    return decoder.stream(() -> first, type).concatWith(next(firstPage, first, type));
+                }
+                LOGGER.debug("Listing {} in {} pages", path, pages);
+                final Observable<Observable<T>> remaining = Observable.range(2, Math.max(0, pages - 1))
+                    .map(number -> decoder.stream(() -> fetch(page(path, number)), type).subscribeOn(pageScheduler));
+                return Observable.merge(remaining.startWith(decoder.stream(() -> first, type)), pageConcurrency);
+            } catch (RuntimeException e) {
+                // the body holds a connection, and a limiter permit, until it is closed
+                Util.ensureClosed(first.body());
+                throw e;
+            }
+        });
+    }
+
+    private <T> Observable<T> follow(URI uri, Class<T> type) {
+        return Observable.defer(() -> {
+            final Response response = fetch(uri);
+            return decoder.stream(() -> response, type).concatWith(next(uri, response, type));
+        });
+    }
+
+    private <T> Observable<T> next(URI uri, Response response, Class<T> type) {
+        return TapPaging.next(uri, response)
+            .map(next -> follow(next, type))
+            .orElse(Observable.empty());
+    }
+
+    private URI page(String path, int page) {
+        return TapPaging.page(apiBaseUrl, path, page, pageSize);
+    }
+
+    private Response fetch(URI uri) {
+        return checked("TapRxClient#get(" + uri + ")", tapResponses.get(uri));
+    }
+
+    /**
+     * Feign does not close bodies of responses returned as they are, which lets the
+     * decoder parse them while the elements are consumed.
+     */
+    private <T> Observable<T> stream(String methodKey, Func0<Response> request, Class<T> type) {
+        return decoder.stream(() -> checked(methodKey, request.call()), type);
+    }
+
+    private static Response checked(String methodKey, Response response) {
+        if (response.status() < 200 || response.status() >= 300) {
+            try {
+                throw FeignException.errorStatus(methodKey, response);
+            } finally {
+                Util.ensureClosed(response.body());
+            }
+        }
+        return response;
+    }
+
+    @Headers("Content-Type: application/json")
+    interface TapResponses {
+
+        @RequestLine("GET /v3/applications")
+        Response getApplications();
+
+        @RequestLine("GET /v3/offerings")
+        Response getServices();
+
+        @RequestLine("GET")
+        Response get(URI uri);
     }
 }
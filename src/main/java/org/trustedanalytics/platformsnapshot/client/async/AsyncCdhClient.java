@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.async;
+
+import feign.Response;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhRxOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
+import org.trustedanalytics.platformsnapshot.client.decoder.JsonReaderDecoder;
+import rx.Observable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Cloudera Manager client on {@link AsyncRequests}, see {@link AsyncTapClient}. Bodies are
+ * decoded by the decoder of the Feign client, and error statuses, 404 included, fail like
+ * there. The blocking {@link CdhOperations} methods wait for the non-blocking ones.
+ */
+public class AsyncCdhClient implements CdhOperations, CdhRxOperations {
+
+    private final AsyncRequests requests;
+    private final String apiBaseUrl;
+    private final JsonReaderDecoder decoder = new JsonReaderDecoder(JsonMapping.cdh());
+
+    public AsyncCdhClient(AsyncRequests requests, String apiBaseUrl) {
+        this.requests = Objects.requireNonNull(requests, "requests");
+        this.apiBaseUrl = Objects.requireNonNull(apiBaseUrl, "apiBaseUrl");
+    }
+
+    @Override
+    public Observable<CdhClusters> clusters() {
+        return get(apiBaseUrl + "/api/v11/clusters", CdhClusters.class);
+    }
+
+    @Override
+    public Observable<CdhServices> services(String cluster) {
+        return Observable.defer(() -> get(apiBaseUrl + "/api/v11/clusters/" + encode(cluster) + "/services",
+            CdhServices.class));
+    }
+
+    @Override
+    public CdhClusters getCdhClusters() {
+        return clusters().toBlocking().single();
+    }
+
+    @Override
+    public CdhServices getCdhServices(String cluster) {
+        return services(cluster).toBlocking().single();
+    }
+
+    private <T> Observable<T> get(String url, Class<T> type) {
+        return requests.get(url).map(response -> decode(response, type));
+    }
+
+    private <T> T decode(Response response, Class<T> type) {
+        try {
+            return type.cast(decoder.decode(response, type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encode(String cluster) {
+        try {
+            return URLEncoder.encode(cluster, StandardCharsets.UTF_8.name()).replace("+", "%20");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustedanalytics.platformsnapshot.client.async;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.ErrorDecoder;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiter;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiters;
+import rx.Observable;
+import rx.Scheduler;
+import rx.subscriptions.Subscriptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Issues GET requests on a non-blocking HTTP client. The I/O reactor receives the whole
+ * body before the response is emitted, so no thread waits for the response or for its body
+ * and decoding on the scheduler reads from memory. Bodies are therefore held in memory,
+ * which TAP paging keeps small.
+ *
+ * Like {@link org.trustedanalytics.platformsnapshot.client.resilience.LimitingClient}, an
+ * adaptive limiter of the host gives the request its permit, waited for on the scheduler,
+ * and takes it back once the body was received; 429 and 503 responses count as rejections.
+ * Error statuses fail the request with the exception Feign's default error decoder raises.
+ */
+public class AsyncRequests {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+
+    private final CloseableHttpAsyncClient client;
+    private final Scheduler scheduler;
+    private final AdaptiveLimiters limiters;
+    private final long maxWaitMillis;
+    private final List<RequestInterceptor> interceptors;
+    private final ErrorDecoder errorDecoder = new ErrorDecoder.Default();
+
+    /**
+     * Requests are sent and their responses emitted on the scheduler, which must not run on
+     * the reactor threads.
+     */
+    public AsyncRequests(CloseableHttpAsyncClient client, Scheduler scheduler, RequestInterceptor... interceptors) {
+        this(client, scheduler, null, 0, Arrays.asList(interceptors));
+    }
+
+    public AsyncRequests(CloseableHttpAsyncClient client, Scheduler scheduler, AdaptiveLimiters limiters,
+                         long maxWaitMillis, RequestInterceptor... interceptors) {
+        this(client, scheduler, Objects.requireNonNull(limiters, "limiters"), maxWaitMillis,
+            Arrays.asList(interceptors));
+    }
+
+    private AsyncRequests(CloseableHttpAsyncClient client, Scheduler scheduler, AdaptiveLimiters limiters,
+                          long maxWaitMillis, List<RequestInterceptor> interceptors) {
+        this.client = Objects.requireNonNull(client, "client");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.limiters = limiters;
+        this.maxWaitMillis = maxWaitMillis;
+        this.interceptors = interceptors;
+    }
+
+    public Observable<Response> get(String url) {
+        return Observable.<Response>create(subscriber -> {
+            final Permit permit;
+            try {
+                permit = acquire(url);
+            } catch (IOException e) {
+                subscriber.onError(e);
+                return;
+            }
+            if (subscriber.isUnsubscribed()) {
+                permit.onDropped();
+                return;
+            }
+            final HttpGet request = new HttpGet(url);
+            request.setHeader("Accept", "application/json");
+            final RequestTemplate template = new RequestTemplate();
+            interceptors.forEach(interceptor -> interceptor.apply(template));
+            template.headers().forEach((name, values) -> values.forEach(value -> request.addHeader(name, value)));
+
+            final BufferingConsumer consumer = new BufferingConsumer(permit);
+            final Future<Response> future;
+            try {
+                future = client.execute(HttpAsyncMethods.create(request), consumer, new FutureCallback<Response>() {
+                    @Override
+                    public void completed(Response response) {
+                        permit.onReceived(response.status());
+                        if (response.status() >= 200 && response.status() < 300) {
+                            subscriber.onNext(response);
+                            subscriber.onCompleted();
+                        } else {
+                            subscriber.onError(errorDecoder.decode("GET " + url, response));
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        permit.onDropped();
+                        subscriber.onError(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        permit.onDropped();
+                        subscriber.onError(new CancellationException("GET " + url));
+                    }
+                });
+            } catch (RuntimeException e) {
+                permit.onDropped();
+                throw e;
+            }
+            subscriber.add(Subscriptions.create(() -> future.cancel(true)));
+        }).subscribeOn(scheduler).observeOn(scheduler);
+    }
+
+    private Permit acquire(String url) throws IOException {
+        if (limiters == null) {
+            return new Permit(null, 0);
+        }
+        final AdaptiveLimiter limiter = limiters.forHost(URI.create(url).getHost());
+        final int inFlight;
+        try {
+            inFlight = limiter.acquire(maxWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + limiter.getName());
+        }
+        if (inFlight == 0) {
+            throw new IOException("No capacity left for " + limiter.getName() + " within " + maxWaitMillis + " ms");
+        }
+        return new Permit(limiter, inFlight);
+    }
+
+    private static Map<String, Collection<String>> headers(HttpResponse httpResponse) {
+        final Map<String, Collection<String>> headers = new LinkedHashMap<>();
+        for (Header header : httpResponse.getAllHeaders()) {
+            headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return headers;
+    }
+
+    private static int capacity(HttpResponse httpResponse) {
+        final Header header = httpResponse.getFirstHeader("Content-Length");
+        if (header == null) {
+            return CHUNK_SIZE;
+        }
+        try {
+            return (int) Math.min(MAX_INITIAL_CAPACITY, Long.parseLong(header.getValue()));
+        } catch (NumberFormatException e) {
+            return CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * The limiter permit of one request, given back once. The latency is measured until the
+     * response headers arrive.
+     */
+    private static final class Permit {
+        private final AdaptiveLimiter limiter;
+        private final int inFlight;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long latency;
+
+        Permit(AdaptiveLimiter limiter, int inFlight) {
+            this.limiter = limiter;
+            this.inFlight = inFlight;
+        }
+
+        void onHeaders() {
+            latency = System.nanoTime() - start;
+        }
+
+        void onReceived(int status) {
+            if (status == 429 || status == 503) {
+                onDropped();
+            } else if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.onSuccess(latency, inFlight);
+            }
+        }
+
+        void onDropped() {
+            if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.onDropped();
+            }
+        }
+    }
+
+    /**
+     * Collects the body in a buffer sized by the Content-Length of the response, which the
+     * emitted response reads without another copy.
+     */
+    private static final class BufferingConsumer extends AbstractAsyncResponseConsumer<Response> {
+        private final Permit permit;
+        private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        private HttpResponse httpResponse;
+        private Content content;
+
+        BufferingConsumer(Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            permit.onHeaders();
+            httpResponse = response;
+            content = new Content(capacity(response));
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            while (decoder.read(chunk) > 0) {
+                content.write(chunk.array(), 0, chunk.position());
+                chunk.clear();
+            }
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        }
+
+        @Override
+        protected Response buildResult(HttpContext context) {
+            return Response.create(httpResponse.getStatusLine().getStatusCode(),
+                httpResponse.getStatusLine().getReasonPhrase(), headers(httpResponse), content.asInputStream(),
+                content.size());
+        }
+
+        @Override
+        protected void releaseResources() {
+        }
+    }
+
+    private static final class Content extends ByteArrayOutputStream {
+
+        Content(int capacity) {
+            super(Math.max(1, capacity));
+        }
+
+        InputStream asInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
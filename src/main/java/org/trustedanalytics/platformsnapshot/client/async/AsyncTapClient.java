@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.async;
+
+import feign.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.TapPaging;
+import org.trustedanalytics.platformsnapshot.client.decoder.TapRxDecoder;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.entity.TapService;
+import rx.Observable;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * {@link TapOperations} on {@link AsyncRequests}, so requests are issued on subscription
+ * and complete on I/O reactor callbacks, and responses are decoded on the scheduler of the
+ * requests. Listings are paged the same way as by the Feign client, see {@link TapPaging}.
+ */
+public class AsyncTapClient implements TapOperations {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTapClient.class);
+
+    private final AsyncRequests requests;
+    private final String apiBaseUrl;
+    private final int pageSize;
+    private final int pageConcurrency;
+    private final TapRxDecoder decoder = new TapRxDecoder(JsonMapping.tap());
+
+    public AsyncTapClient(AsyncRequests requests, String apiBaseUrl) {
+        this(requests, apiBaseUrl, 0, 1);
+    }
+
+    /**
+     * With a positive pageSize applications and offerings are listed page by page. When the
+     * first page reports the total count in X-Total-Count, the remaining pages are fetched
+     * pageConcurrency at a time, otherwise next links in the Link header are followed.
+     */
+    public AsyncTapClient(AsyncRequests requests, String apiBaseUrl, int pageSize, int pageConcurrency) {
+        this.requests = Objects.requireNonNull(requests, "requests");
+        this.apiBaseUrl = Objects.requireNonNull(apiBaseUrl, "apiBaseUrl");
+        this.pageSize = pageSize;
+        this.pageConcurrency = Math.max(1, pageConcurrency);
+    }
+
+    @Override
+    public Observable<TapApplication> getApplications() {
+        return list("/v3/applications", TapApplication.class);
+    }
+
+    @Override
+    public Observable<TapService> getServices() {
+        return list("/v3/offerings", TapService.class)
+            .doOnNext(tapService -> LOGGER.info("service: {}", tapService));
+    }
+
+    /**
+     * Lists offerings starting at the given page and follows its next links.
+     */
+    @Override
+    public Observable<TapService> getServices(URI uri) {
+        return follow(uri, TapService.class);
+    }
+
+    @Override
+    public Observable<TapInfo> getTapInfo() {
+        return requests.get(apiBaseUrl + "/v3/platform_info").concatMap(response -> decode(response, TapInfo.class));
+    }
+
+    private <T> Observable<T> list(String path, Class<T> type) {
+        if (pageSize <= 0) {
+            return requests.get(apiBaseUrl + path).concatMap(response -> decode(response, type));
+        }
+        final URI firstPage = TapPaging.page(apiBaseUrl, path, 1, pageSize);
+        return requests.get(firstPage.toString()).concatMap(first -> {
+            final Integer pages = TapPaging.pages(first, pageSize).orElse(null);
+            if (pages == null) {
+                return decode(first, type).concatWith(next(firstPage, first, type));
+            }
+            LOGGER.debug("Listing {} in {} pages", path, pages);
+            final Observable<Observable<T>> remaining = Observable.range(2, Math.max(0, pages - 1))
+                .map(number -> requests.get(TapPaging.page(apiBaseUrl, path, number, pageSize).toString())
+                    .concatMap(response -> decode(response, type)));
+            return Observable.merge(remaining.startWith(decode(first, type)), pageConcurrency);
+        });
+    }
+
+    private <T> Observable<T> follow(URI uri, Class<T> type) {
+        return requests.get(uri.toString())
+            .concatMap(response -> decode(response, type).concatWith(next(uri, response, type)));
+    }
+
+    private <T> Observable<T> next(URI uri, Response response, Class<T> type) {
+        return TapPaging.next(uri, response)
+            .map(next -> follow(next, type))
+            .orElse(Observable.empty());
+    }
+
+    private <T> Observable<T> decode(Response response, Class<T> type) {
+        return decoder.stream(() -> response, type);
+    }
+}
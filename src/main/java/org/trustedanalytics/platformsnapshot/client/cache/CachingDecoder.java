@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Returns the previously decoded object for a body which {@link ConditionalGetClient}
+ * served unchanged, instead of parsing it again. Decoded objects are shared between
+ * calls and must not be modified.
+ */
+public class CachingDecoder implements Decoder {
+    private static final int MAX_ENTRIES = 100;
+
+    private final Decoder delegate;
+    private final Cache<List<Object>, Object> decoded = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    public CachingDecoder(Decoder delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        final String validator = ConditionalGetClient.header(response.headers(), ConditionalGetClient.VALIDATOR_HEADER);
+        if (validator == null) {
+            return delegate.decode(response, type);
+        }
+        final List<Object> key = Arrays.asList(validator, type);
+        final Object cached = decoded.getIfPresent(key);
+        if (cached != null) {
+            Util.ensureClosed(response.body());
+            return cached;
+        }
+        final Object value = delegate.decode(response, type);
+        if (value != null) {
+            decoded.put(key, value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers bodies of GET responses carrying an ETag or Last-Modified header and
+ * revalidates them with conditional requests. A 304 response is answered with the
+ * remembered body.
+ *
+ * Responses which can be reused carry the {@link #VALIDATOR_HEADER}, which lets
+ * {@link CachingDecoder} skip decoding bodies it has already seen. Bodies larger than
+ * maxBodyBytes are neither remembered nor buffered, they are streamed to the decoder.
+ */
+public class ConditionalGetClient implements Client {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConditionalGetClient.class);
+
+    public static final String VALIDATOR_HEADER = "X-Snapshot-Validator";
+
+    private final Client delegate;
+    private final int maxBodyBytes;
+    private final Cache<String, CachedResponse> responses;
+
+    public ConditionalGetClient(Client delegate, int maxEntries, int maxBodyBytes) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.maxBodyBytes = maxBodyBytes;
+        this.responses = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (!"GET".equals(request.method())) {
+            return delegate.execute(request, options);
+        }
+        final CachedResponse cached = responses.getIfPresent(request.url());
+        final Response response = delegate.execute(cached == null ? request : cached.revalidate(request), options);
+        if (cached != null && response.status() == 304) {
+            Util.ensureClosed(response.body());
+            LOGGER.debug("Not modified: {}", request.url());
+            return cached.toResponse();
+        }
+
+        final String validator = validator(response);
+        final Integer length = response.body() == null ? null : response.body().length();
+        if (response.status() != 200 || response.body() == null || validator == null
+            || (length != null && length > maxBodyBytes)) {
+            responses.invalidate(request.url());
+            return response;
+        }
+        // without a Content-Length only maxBodyBytes + 1 bytes are read to tell whether the body fits
+        final InputStream in = response.body().asInputStream();
+        final byte[] head;
+        try {
+            head = ByteStreams.toByteArray(ByteStreams.limit(in, maxBodyBytes + 1L));
+        } catch (IOException | RuntimeException e) {
+            Util.ensureClosed(response.body());
+            throw e;
+        }
+        if (head.length > maxBodyBytes) {
+            responses.invalidate(request.url());
+            return Response.create(response.status(), response.reason(), response.headers(),
+                new SequenceInputStream(new ByteArrayInputStream(head), in) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            response.body().close();
+                        }
+                    }
+                }, null);
+        }
+        Util.ensureClosed(response.body());
+        final CachedResponse fresh = new CachedResponse(response, request.url() + " " + validator, head);
+        responses.put(request.url(), fresh);
+        return fresh.toResponse();
+    }
+
+    static String header(Map<String, Collection<String>> headers, String name) {
+        return headers.entrySet().stream()
+            .filter(header -> name.equalsIgnoreCase(header.getKey()))
+            .flatMap(header -> header.getValue().stream())
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static String validator(Response response) {
+        final String etag = header(response.headers(), "ETag");
+        return etag != null ? etag : header(response.headers(), "Last-Modified");
+    }
+
+    private static final class CachedResponse {
+        private final int status;
+        private final String reason;
+        private final Map<String, Collection<String>> headers;
+        private final String etag;
+        private final String lastModified;
+        private final byte[] body;
+
+        CachedResponse(Response response, String validator, byte[] body) {
+            this.status = response.status();
+            this.reason = response.reason();
+            this.headers = new LinkedHashMap<>(response.headers());
+            this.headers.put(VALIDATOR_HEADER, Collections.singletonList(validator));
+            this.etag = header(response.headers(), "ETag");
+            this.lastModified = header(response.headers(), "Last-Modified");
+            this.body = body;
+        }
+
+        Request revalidate(Request request) {
+            final Map<String, Collection<String>> conditional = new LinkedHashMap<>(request.headers());
+            if (etag != null) {
+                conditional.put("If-None-Match", Collections.singletonList(etag));
+            }
+            if (lastModified != null) {
+                conditional.put("If-Modified-Since", Collections.singletonList(lastModified));
+            }
+            return Request.create(request.method(), request.url(), conditional, request.body(), request.charset());
+        }
+
+        Response toResponse() {
+            return Response.create(status, reason, headers, body);
+        }
+    }
+}
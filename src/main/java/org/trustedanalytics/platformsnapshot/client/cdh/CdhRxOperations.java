@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.cdh;
+
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
+import rx.Observable;
+
+/**
+ * Cloudera Manager reads issued on subscription.
+ */
+public interface CdhRxOperations {
+
+    Observable<CdhClusters> clusters();
+
+    Observable<CdhServices> services(String cluster);
+
+    /**
+     * Uses the non-blocking implementation when available, blocking calls are otherwise
+     * made on the subscribing thread.
+     */
+    static CdhRxOperations of(CdhOperations operations) {
+        if (operations instanceof CdhRxOperations) {
+            return (CdhRxOperations) operations;
+        }
+        return new CdhRxOperations() {
+            @Override
+            public Observable<CdhClusters> clusters() {
+                return Observable.defer(() -> Observable.just(operations.getCdhClusters()));
+            }
+
+            @Override
+            public Observable<CdhServices> services(String cluster) {
+                return Observable.defer(() -> Observable.just(operations.getCdhServices(cluster)));
+            }
+        };
+    }
+}
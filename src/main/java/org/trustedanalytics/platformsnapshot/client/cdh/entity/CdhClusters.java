@@ -18,9 +18,26 @@ package org.trustedanalytics.platformsnapshot.client.cdh.entity;
 import lombok.Data;
 
 import java.util.Collection;
+import java.util.stream.Collectors;
 
 @Data
 public class CdhClusters {
 
     private Collection<CdhCluster> items;
+
+    /**
+     * Full version of a single cluster, or name:version pairs separated by commas
+     * when Cloudera Manager runs more clusters.
+     */
+    public static String fullVersion(Collection<CdhCluster> clusters) {
+        if (clusters == null || clusters.isEmpty()) {
+            return null;
+        }
+        if (clusters.size() == 1) {
+            return clusters.iterator().next().getFullVersion();
+        }
+        return clusters.stream()
+            .map(cluster -> cluster.getName() + ":" + cluster.getFullVersion())
+            .collect(Collectors.joining(","));
+    }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.decoder;
+
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+/**
+ * Decodes bodies with the pre-resolved readers of a {@link JsonMapping}, otherwise like
+ * Feign's JacksonDecoder.
+ */
+public class JsonReaderDecoder implements Decoder {
+    private final JsonMapping mapping;
+
+    public JsonReaderDecoder(JsonMapping mapping) {
+        this.mapping = Objects.requireNonNull(mapping, "mapping");
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (response.status() == 404) {
+            return Util.emptyValueOf(type);
+        }
+        if (response.body() == null) {
+            return null;
+        }
+        try (PushbackInputStream body = new PushbackInputStream(response.body().asInputStream())) {
+            final int first = body.read();
+            if (first == -1) {
+                return null;
+            }
+            body.unread(first);
+            return mapping.reader(type).readValue((InputStream) body);
+        } catch (RuntimeJsonMappingException e) {
+            if (e.getCause() != null && e.getCause() instanceof IOException) {
+                throw IOException.class.cast(e.getCause());
+            }
+            throw e;
+        }
+    }
+}
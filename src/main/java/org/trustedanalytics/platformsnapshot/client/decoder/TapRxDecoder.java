@@ -16,27 +16,45 @@
 package org.trustedanalytics.platformsnapshot.client.decoder;
 
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import feign.Response;
 import feign.codec.Decoder;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
 import rx.Observable;
+import rx.functions.Func0;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
+/**
+ * Decodes a JSON array or a single JSON object into an Observable of its elements.
+ *
+ * Responses passed to {@link #decode} are closed by Feign afterwards, so their elements
+ * are read before the Observable is returned. {@link #stream} reads the elements while
+ * they are requested by the subscriber instead, so only the elements in flight are kept
+ * in memory.
+ */
 public class TapRxDecoder implements Decoder {
-    private static final int BUFFER_SIZE = 32;
-    private final ObjectMapper mapper;
+    private final JsonMapping mapping;
 
     public TapRxDecoder(ObjectMapper mapper) {
-        this.mapper = Objects.requireNonNull(mapper, "mapper");
+        this(new JsonMapping(mapper));
+    }
+
+    public TapRxDecoder(JsonMapping mapping) {
+        this.mapping = Objects.requireNonNull(mapping, "mapping");
     }
 
     @Override
@@ -44,25 +62,13 @@ public class TapRxDecoder implements Decoder {
         if (response.body() == null) {
             return null;
         }
-        Reader reader = response.body().asReader();
-        if (!reader.markSupported()) {
-            reader = new BufferedReader(reader, BUFFER_SIZE);
-        }
-        try {
-            final char[] buffer = new char[BUFFER_SIZE];
-
-            reader.mark(BUFFER_SIZE);
-            if (reader.read(buffer) == -1) {
-                return Observable.just(response);
-            }
-
-            reader.reset();
-            final ParameterizedType parameterizedType = (ParameterizedType) type;
-            if (new String(buffer).startsWith("[")) {
-                return listToObservable(mapper.readValue(reader, mapper.constructType(toListType(parameterizedType))));
-            } else {
-                return Observable.just(mapper.readValue(reader, mapper.constructType(toScalarType(parameterizedType))));
-            }
+        final ObjectReader reader = mapping.reader(toScalarType((ParameterizedType) type));
+        try (JsonParser parser = parser(response)) {
+            final List<Object> elements = new ArrayList<>();
+            new ElementIterator<>(parser, reader).forEachRemaining(elements::add);
+            return Observable.from(elements);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         } catch (RuntimeJsonMappingException e) {
             if (e.getCause() != null && e.getCause() instanceof IOException) {
                 throw IOException.class.cast(e.getCause());
@@ -71,32 +77,95 @@ public class TapRxDecoder implements Decoder {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> Observable<T> listToObservable(List<T> list) {
-        final Observable<T> resources = Observable.from(list);
-        return resources;
+    /**
+     * Issues the request on subscription and emits elements of the response body as they
+     * are parsed, honouring backpressure. The body is closed when the Observable terminates
+     * or is unsubscribed.
+     */
+    public <T> Observable<T> stream(Func0<Response> request, Class<T> elementType) {
+        final ObjectReader reader = mapping.reader(elementType);
+        return Observable.<T, JsonParser>using(
+            () -> open(request.call()),
+            parser -> Observable.from(() -> new ElementIterator<T>(parser, reader)),
+            this::close);
     }
 
-    private Type toListType(ParameterizedType type) {
-        return new ParameterizedType() {
-            @Override
-            public Type[] getActualTypeArguments() {
-                return type.getActualTypeArguments();
-            }
+    private JsonParser open(Response response) {
+        try {
+            return parser(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            @Override
-            public Type getRawType() {
-                return ArrayList.class;
-            }
+    /**
+     * Parses the raw body bytes, Jackson picks its UTF-8 byte parser for them and skips
+     * whitespace before the first token, so no Reader or intermediate String is involved.
+     */
+    private JsonParser parser(Response response) throws IOException {
+        final JsonFactory factory = mapping.mapper().getFactory();
+        if (response.body() == null || Integer.valueOf(0).equals(response.body().length())) {
+            return factory.createParser(new byte[0]);
+        }
+        return factory.createParser(response.body().asInputStream());
+    }
 
-            @Override
-            public Type getOwnerType() {
-                return type.getOwnerType();
-            }
-        };
+    private void close(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private Type toScalarType(ParameterizedType type) {
         return type.getActualTypeArguments()[0];
     }
-}
\ No newline at end of file
+
+    /**
+     * Walks elements of a top level array one token at a time, or returns a top level
+     * object as the only element.
+     */
+    private class ElementIterator<T> implements Iterator<T> {
+        private final JsonParser parser;
+        private final ObjectReader reader;
+        private boolean advanced;
+
+        ElementIterator(JsonParser parser, ObjectReader reader) {
+            this.parser = parser;
+            this.reader = reader;
+            // outside of an array the current token already starts the only element
+            this.advanced = nextToken() != JsonToken.START_ARRAY;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!advanced) {
+                nextToken();
+                advanced = true;
+            }
+            return parser.getCurrentToken() != null && parser.getCurrentToken() != JsonToken.END_ARRAY;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            advanced = false;
+            try {
+                return reader.readValue(parser);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private JsonToken nextToken() {
+            try {
+                return parser.nextToken();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.replay;
+
+import com.google.common.io.ByteStreams;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Stores bodies of successful responses in a directory, from which they can be replayed
+ * by {@link ReplayTapOperations} and {@link ReplayCdhOperations}.
+ */
+public class RecordingClient implements Client {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordingClient.class);
+
+    private final Client delegate;
+    private final Path directory;
+
+    public RecordingClient(Client delegate, Path directory) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.directory = Objects.requireNonNull(directory, "directory");
+    }
+
+    /**
+     * Wraps the client when a recording directory is configured.
+     */
+    public static Client recording(Client delegate, String directory) {
+        return StringUtils.hasText(directory) ? new RecordingClient(delegate, Paths.get(directory)) : delegate;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        final Response response = delegate.execute(request, options);
+        if (response.status() != 200 || response.body() == null) {
+            return response;
+        }
+        final byte[] body;
+        try (InputStream in = response.body().asInputStream()) {
+            body = ByteStreams.toByteArray(in);
+        }
+        final Path file = Recordings.file(directory, URI.create(request.url()));
+        Recordings.write(file, body);
+        LOGGER.info("Recorded {} bytes of {} to {}", body.length, request.url(), file);
+        return Response.create(response.status(), response.reason(), response.headers(), body);
+    }
+}
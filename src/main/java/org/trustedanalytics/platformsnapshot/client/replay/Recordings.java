@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Layout of recorded responses: one gzipped file per request path and query, e.g.
+ * v3_applications.json.gz or v3_applications_page_2_per_page_50.json.gz for a paged listing.
+ */
+final class Recordings {
+
+    private static final String EXTENSION = ".json.gz";
+    private static final Pattern PAGE = Pattern.compile("_page_(\\d+)[_.]");
+
+    private Recordings() {
+    }
+
+    static Path file(Path directory, String path) {
+        return directory.resolve(name(path) + EXTENSION);
+    }
+
+    static Path file(Path directory, URI uri) {
+        return file(directory, uri.getRawQuery() == null ? uri.getPath() : uri.getPath() + "?" + uri.getRawQuery());
+    }
+
+    /**
+     * Recorded pages of the listing at path, in page order.
+     */
+    static List<Path> pages(Path directory, String path) throws IOException {
+        final String prefix = name(path) + "_page_";
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith(prefix))
+                .filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                .sorted(Comparator.comparingInt(Recordings::pageNumber))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static int pageNumber(Path file) {
+        final Matcher matcher = PAGE.matcher(file.getFileName().toString());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static String name(String path) {
+        return path.replaceAll("^/+", "").replaceAll("[^A-Za-z0-9.-]", "_");
+    }
+
+    static void write(Path file, byte[] body) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(body);
+        }
+    }
+
+    static byte[] read(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    /**
+     * Repeats the items scale times. Copies get a new id derived from the original one and
+     * a numbered name, so that they are stored as separate artifacts.
+     */
+    static ArrayNode scale(ArrayNode items, int scale) {
+        final ArrayNode scaled = items.arrayNode();
+        scaled.addAll(items);
+        for (int copy = 1; copy < scale; copy++) {
+            for (JsonNode item : items) {
+                scaled.add(item.isObject() ? copyOf((ObjectNode) item, copy) : item);
+            }
+        }
+        return scaled;
+    }
+
+    private static ObjectNode copyOf(ObjectNode item, int copy) {
+        final ObjectNode node = item.deepCopy();
+        if (node.hasNonNull("id")) {
+            final byte[] seed = (node.get("id").asText() + "#" + copy).getBytes(StandardCharsets.UTF_8);
+            node.put("id", UUID.nameUUIDFromBytes(seed).toString());
+        }
+        if (node.hasNonNull("name")) {
+            node.put("name", node.get("name").asText() + "-" + copy);
+        }
+        return node;
+    }
+}
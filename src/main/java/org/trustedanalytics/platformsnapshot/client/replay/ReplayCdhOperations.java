@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Serves Cloudera Manager responses recorded by {@link RecordingClient}. Services of every
+ * cluster are repeated scale times, clusters are replayed as recorded.
+ */
+public class ReplayCdhOperations implements CdhOperations {
+
+    private final Path directory;
+    private final int scale;
+    private final ObjectMapper mapper = JsonMapping.cdh().mapper();
+
+    public ReplayCdhOperations(Path directory, int scale) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.scale = scale;
+    }
+
+    @Override
+    public CdhClusters getCdhClusters() {
+        return mapper.convertValue(read("/api/v11/clusters"), CdhClusters.class);
+    }
+
+    @Override
+    public CdhServices getCdhServices(String cluster) {
+        final JsonNode services = read("/api/v11/clusters/" + cluster + "/services");
+        if (services.get("items") instanceof ArrayNode) {
+            ((ObjectNode) services).set("items", Recordings.scale((ArrayNode) services.get("items"), scale));
+        }
+        return mapper.convertValue(services, CdhServices.class);
+    }
+
+    private JsonNode read(String path) {
+        final Path file = Recordings.file(directory, path);
+        try {
+            return mapper.readTree(Recordings.read(file));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to replay " + file, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.entity.TapService;
+import rx.Observable;
+import rx.functions.Func0;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Serves TAP responses recorded by {@link RecordingClient}. Applications and offerings are
+ * repeated scale times, which makes it possible to load test collection with more
+ * artifacts than the recorded platform has.
+ */
+public class ReplayTapOperations implements TapOperations {
+
+    private final Path directory;
+    private final int scale;
+    private final ObjectMapper mapper = JsonMapping.tap().mapper();
+
+    public ReplayTapOperations(Path directory, int scale) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.scale = scale;
+    }
+
+    @Override
+    public Observable<TapApplication> getApplications() {
+        return replayList("/v3/applications", TapApplication.class);
+    }
+
+    @Override
+    public Observable<TapService> getServices() {
+        return replayList("/v3/offerings", TapService.class);
+    }
+
+    @Override
+    public Observable<TapService> getServices(URI uri) {
+        return replay(() -> (ArrayNode) read(Recordings.file(directory, uri)), TapService.class);
+    }
+
+    @Override
+    public Observable<TapInfo> getTapInfo() {
+        return Observable.defer(() -> Observable.just(mapper.convertValue(read("/v3/platform_info"), TapInfo.class)));
+    }
+
+    private <T> Observable<T> replayList(String path, Class<T> type) {
+        return replay(() -> readList(path), type);
+    }
+
+    private <T> Observable<T> replay(Func0<ArrayNode> items, Class<T> type) {
+        return Observable.defer(() -> Observable.from(Recordings.scale(items.call(), scale)))
+            .map(node -> mapper.convertValue(node, type));
+    }
+
+    /**
+     * Reads the listing recorded in a single response or, when it was listed page by page,
+     * joins the recorded pages.
+     */
+    private ArrayNode readList(String path) {
+        final Path file = Recordings.file(directory, path);
+        if (Files.exists(file)) {
+            return (ArrayNode) read(file);
+        }
+        final List<Path> pages;
+        try {
+            pages = Recordings.pages(directory, path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to replay " + file, e);
+        }
+        if (pages.isEmpty()) {
+            throw new IllegalStateException("Unable to replay " + file + ", no response or pages were recorded");
+        }
+        final ArrayNode items = mapper.createArrayNode();
+        pages.forEach(page -> items.addAll((ArrayNode) read(page)));
+        return items;
+    }
+
+    private JsonNode read(String path) {
+        return read(Recordings.file(directory, path));
+    }
+
+    private JsonNode read(Path file) {
+        try {
+            return mapper.readTree(Recordings.read(file));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to replay " + file, e);
+        }
+    }
+}
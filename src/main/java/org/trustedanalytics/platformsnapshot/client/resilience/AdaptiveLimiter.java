@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the calls in flight to one upstream with additive increase and multiplicative
+ * decrease. While responses arrive within the tolerated multiple of the fastest recent
+ * latency the limit grows by one per limit's worth of calls, as long as the calls use
+ * at least half of it. A slower response, a rejection or an I/O error cuts the limit.
+ */
+public class AdaptiveLimiter {
+    static final int BASELINE_SAMPLES = 500;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                           double latencyTolerance, double backoffRatio) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Waits until a call fits under the limit.
+     *
+     * @return the number of calls in flight including this one, or 0 when the limit did
+     * not free up in time
+     */
+    public synchronized int acquire(long maxWaitMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (inFlight >= (int) limit) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return 0;
+            }
+            wait(remaining);
+        }
+        return ++inFlight;
+    }
+
+    public synchronized void onSuccess(long latencyNanos, int inFlightAtStart) {
+        release();
+        sample(latencyNanos);
+        if (latencyNanos > baselineNanos * latencyTolerance) {
+            decrease();
+        } else if (inFlightAtStart * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized void onDropped() {
+        release();
+        decrease();
+    }
+
+    /**
+     * Tracks the fastest latency of the previous window, so the baseline follows an
+     * upstream which got permanently slower or faster.
+     */
+    private void sample(long latencyNanos) {
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        baselineNanos = Math.min(baselineNanos, latencyNanos);
+        if (++windowSamples >= BASELINE_SAMPLES) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * One {@link AdaptiveLimiter} per upstream host, created on its first request.
+ */
+public class AdaptiveLimiters {
+    private final Function<String, AdaptiveLimiter> factory;
+    private final ConcurrentMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveLimiters(Function<String, AdaptiveLimiter> factory) {
+        this.factory = Objects.requireNonNull(factory, "factory");
+    }
+
+    public AdaptiveLimiter forHost(String host) {
+        return limiters.computeIfAbsent(host, factory);
+    }
+
+    public Collection<AdaptiveLimiter> all() {
+        return limiters.values();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the calls in flight. Calls over the limit are rejected right away instead of
+ * queueing behind a slow upstream.
+ */
+public class Bulkhead {
+    private final String name;
+    private final int limit;
+    private final Semaphore permits;
+
+    public Bulkhead(String name, int limit) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.limit = Math.max(1, limit);
+        this.permits = new Semaphore(this.limit);
+    }
+
+    /**
+     * @throws BulkheadFullException when the limit is reached
+     */
+    public void acquirePermission() {
+        if (!permits.tryAcquire()) {
+            throw new BulkheadFullException(name, limit);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+}
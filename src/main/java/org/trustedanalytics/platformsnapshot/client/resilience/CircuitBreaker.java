@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to an upstream whose failure rate over a rolling window reached the threshold.
+ * After the open period a few probe calls are let through: when all of them succeed the
+ * breaker closes again, a single failure opens it for another period.
+ *
+ * The window is split into one second buckets, so outcomes expire gradually.
+ */
+public class CircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    // guarded by this
+    private final long[] bucketSeconds;
+    private final int[] calls;
+    private final int[] failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String name, int windowSeconds, int minimumCalls, double failureRateThreshold,
+                          long openMillis, int halfOpenCalls) {
+        this(name, windowSeconds, minimumCalls, failureRateThreshold, openMillis, halfOpenCalls,
+            System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int windowSeconds, int minimumCalls, double failureRateThreshold,
+                   long openMillis, int halfOpenCalls, LongSupplier clock) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.bucketSeconds = new long[Math.max(1, windowSeconds)];
+        this.calls = new int[bucketSeconds.length];
+        this.failures = new int[bucketSeconds.length];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @throws CircuitOpenException when the breaker is open, or half-open with all probes in flight
+     */
+    public synchronized void acquirePermission() {
+        final long now = clock.getAsLong();
+        if (state == State.OPEN && now - openedAt >= openMillis) {
+            transition(State.HALF_OPEN);
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probesStarted >= halfOpenCalls)) {
+            throw new CircuitOpenException(name);
+        }
+        if (state == State.HALF_OPEN) {
+            probesStarted++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenCalls) {
+                reset();
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (failureRateReached()) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Gives back a permission whose call was abandoned before its outcome was known.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    private void record(boolean failure) {
+        final long second = clock.getAsLong() / 1000;
+        final int bucket = (int) (second % bucketSeconds.length);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            calls[bucket] = 0;
+            failures[bucket] = 0;
+        }
+        calls[bucket]++;
+        if (failure) {
+            failures[bucket]++;
+        }
+    }
+
+    private boolean failureRateReached() {
+        final long oldest = clock.getAsLong() / 1000 - bucketSeconds.length;
+        int total = 0;
+        int failed = 0;
+        for (int i = 0; i < bucketSeconds.length; i++) {
+            if (bucketSeconds[i] > oldest) {
+                total += calls[i];
+                failed += failures[i];
+            }
+        }
+        return total >= minimumCalls && failed >= failureRateThreshold * total;
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        transition(State.OPEN);
+    }
+
+    private void reset() {
+        for (int i = 0; i < bucketSeconds.length; i++) {
+            bucketSeconds[i] = 0;
+            calls[i] = 0;
+            failures[i] = 0;
+        }
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            LOG.warn("Circuit breaker {} changed from {} to {}", name, state, next);
+            state = next;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Passes calls to one upstream through its circuit breaker and a bulkhead of the calling path.
+ */
+public class Guard {
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final long timeoutMillis;
+    private final Scheduler scheduler;
+
+    /**
+     * A call which did not emit its next element or complete within timeoutMillis fails with
+     * a TimeoutException, 0 lets calls run as long as the client does.
+     */
+    public Guard(CircuitBreaker circuitBreaker, Bulkhead bulkhead, long timeoutMillis, Scheduler scheduler) {
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+        this.bulkhead = Objects.requireNonNull(bulkhead, "bulkhead");
+        this.timeoutMillis = timeoutMillis;
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    Guard(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this(circuitBreaker, bulkhead, 0, Schedulers.immediate());
+    }
+
+    /**
+     * Checks both on every subscription and fails it right away when either rejects the call.
+     * Completion counts as success of the call and an error anywhere in it, the timeout
+     * included, as failure; a call unsubscribed before it terminated is not counted. The
+     * bulkhead permission is held until the call terminates or is unsubscribed.
+     */
+    public <T> Observable<T> protect(Observable<T> call) {
+        return Observable.defer(() -> {
+            try {
+                bulkhead.acquirePermission();
+            } catch (BulkheadFullException e) {
+                return Observable.error(e);
+            }
+            try {
+                circuitBreaker.acquirePermission();
+            } catch (CircuitOpenException e) {
+                bulkhead.release();
+                return Observable.error(e);
+            }
+            final AtomicBoolean recorded = new AtomicBoolean();
+            final AtomicBoolean released = new AtomicBoolean();
+            final Observable<T> limited = timeoutMillis > 0
+                ? call.timeout(timeoutMillis, TimeUnit.MILLISECONDS, scheduler)
+                : call;
+            return limited
+                .doOnCompleted(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        circuitBreaker.onSuccess();
+                    }
+                })
+                .doOnError(e -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        circuitBreaker.onFailure();
+                    }
+                })
+                .doOnTerminate(() -> release(released))
+                .doOnUnsubscribe(() -> {
+                    if (recorded.compareAndSet(false, true)) {
+                        circuitBreaker.onIgnored();
+                    }
+                    release(released);
+                });
+        });
+    }
+
+    private void release(AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            bulkhead.release();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends a duplicate of an idempotent call when the original did not respond within the
+ * configured percentile of the recent latencies of the operation. Whichever responds first
+ * wins and the other one is unsubscribed.
+ *
+ * Only latencies of original calls are recorded, an original which lost counts with the
+ * time it was waited for, so hedging does not push the percentile down by itself. Failed
+ * originals are not recorded, fast errors would pull the percentile down instead.
+ *
+ * The duplicate is subscribed on the given scheduler, which should be the one the original
+ * calls run on, since it blocks on the client and its subscribers process the response.
+ */
+public class Hedging {
+    private static final Logger LOG = LoggerFactory.getLogger(Hedging.class);
+
+    private final double percentile;
+    private final int minSamples;
+    private final int window;
+    private final long minDelayMillis;
+    private final Scheduler scheduler;
+    private final ConcurrentMap<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+
+    public Hedging(double percentile, int minSamples, int window, long minDelayMillis, Scheduler scheduler) {
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.window = window;
+        this.minDelayMillis = minDelayMillis;
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    /**
+     * Calls without a duplicate until minSamples latencies of the operation are known.
+     */
+    public <T> Observable<T> hedge(String operation, Func0<Observable<T>> call) {
+        final LatencyTracker tracker = trackers.computeIfAbsent(operation, name -> new LatencyTracker(window));
+        return Observable.defer(() -> {
+            final long start = scheduler.now();
+            final AtomicBoolean recorded = new AtomicBoolean();
+            final Action0 record = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    tracker.record(scheduler.now() - start);
+                }
+            };
+            final Observable<T> original = Observable.defer(call)
+                .doOnNext(item -> record.call())
+                .doOnCompleted(record)
+                .doOnError(e -> recorded.set(true))
+                .doOnUnsubscribe(record);
+
+            final OptionalLong delay = tracker.percentile(percentile, minSamples);
+            if (!delay.isPresent()) {
+                return original;
+            }
+            final long delayMillis = Math.max(minDelayMillis, delay.getAsLong());
+            final Observable<T> duplicate = Observable.defer(() -> {
+                LOG.debug("Hedging {} after {} ms", operation, delayMillis);
+                return call.call();
+            }).subscribeOn(scheduler).delaySubscription(delayMillis, TimeUnit.MILLISECONDS, scheduler);
+            return Observable.amb(original, duplicate);
+        });
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Latencies of the most recent calls of one operation.
+ */
+class LatencyTracker {
+    // guarded by this
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyTracker(int window) {
+        this.samples = new long[Math.max(1, window)];
+    }
+
+    synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * @return the latency below which the given share of the recorded calls completed, or
+     * nothing while fewer than minSamples calls were recorded
+     */
+    synchronized OptionalLong percentile(double percentile, int minSamples) {
+        if (size == 0 || size < minSamples) {
+            return OptionalLong.empty();
+        }
+        final long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile * size) - 1;
+        return OptionalLong.of(sorted[Math.max(0, Math.min(size - 1, index))]);
+    }
+}
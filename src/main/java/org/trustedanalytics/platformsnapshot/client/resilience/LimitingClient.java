@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Passes requests through an {@link AdaptiveLimiter} of their host, so each upstream gets
+ * as many requests in flight as it answers without slowing down. 429 and 503 responses
+ * count as rejections. The latency is measured until the response headers arrive, but the
+ * call stays in flight until the response body is closed, as it holds a connection until then.
+ */
+public class LimitingClient implements Client {
+    private final Client delegate;
+    private final long maxWaitMillis;
+    private final AdaptiveLimiters limiters;
+
+    public LimitingClient(Client delegate, AdaptiveLimiters limiters, long maxWaitMillis) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.limiters = Objects.requireNonNull(limiters, "limiters");
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        final AdaptiveLimiter limiter = limiters.forHost(URI.create(request.url()).getHost());
+        final int inFlight;
+        try {
+            inFlight = limiter.acquire(maxWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + limiter.getName());
+        }
+        if (inFlight == 0) {
+            throw new IOException("No capacity left for " + limiter.getName() + " within " + maxWaitMillis + " ms");
+        }
+        final long start = System.nanoTime();
+        final Response response;
+        try {
+            response = delegate.execute(request, options);
+        } catch (IOException | RuntimeException e) {
+            limiter.onDropped();
+            throw e;
+        }
+        if (response.status() == 429 || response.status() == 503) {
+            limiter.onDropped();
+            return response;
+        }
+        final long latency = System.nanoTime() - start;
+        final Runnable release = () -> limiter.onSuccess(latency, inFlight);
+        if (response.body() == null || response.body().isRepeatable()) {
+            release.run();
+            return response;
+        }
+        return Response.create(response.status(), response.reason(), response.headers(),
+            new ReleasingBody(response.body(), release));
+    }
+
+    /**
+     * Releases the call once, when either the body or the stream or reader taken from it
+     * is closed.
+     */
+    private static final class ReleasingBody implements Response.Body {
+        private final Response.Body delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final Runnable release;
+
+        ReleasingBody(Response.Body delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public Integer length() {
+            return delegate.length();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException {
+            return new FilterInputStream(delegate.asInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public Reader asReader() throws IOException {
+            return new FilterReader(delegate.asReader()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhRxOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.entity.TapService;
+import org.trustedanalytics.platformsnapshot.service.ResilienceConfiguration;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One circuit breaker per upstream, shared by all callers, and one bulkhead per upstream
+ * and calling path, so version requests cannot take the permits of a running snapshot
+ * and the other way round. Calls are optionally hedged inside the guard, so a duplicate
+ * does not take another permit.
+ */
+public class UpstreamGuards {
+
+    public enum Path { SNAPSHOT, VERSION }
+
+    private final boolean enabled;
+    private final Hedging hedging;
+    private final CircuitBreaker tapBreaker;
+    private final CircuitBreaker cdhBreaker;
+    private final Map<Path, Guard> tapGuards = new EnumMap<>(Path.class);
+    private final Map<Path, Guard> cdhGuards = new EnumMap<>(Path.class);
+    private final Map<Path, Integer> limits = new EnumMap<>(Path.class);
+
+    /**
+     * The scheduler runs hedged duplicates and call timeouts, so it should be the one the
+     * calls are collected on.
+     */
+    public UpstreamGuards(ResilienceConfiguration configuration, Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "scheduler");
+        this.enabled = configuration.isEnabled();
+        this.hedging = configuration.isHedging()
+            ? new Hedging(configuration.getHedgingPercentile(), configuration.getHedgingMinSamples(),
+                configuration.getHedgingWindow(), configuration.getHedgingMinDelayMillis(), scheduler)
+            : null;
+        this.tapBreaker = circuitBreaker("tap", configuration);
+        this.cdhBreaker = circuitBreaker("cdh", configuration);
+        final long timeoutMillis = configuration.getTimeoutSeconds() * 1000L;
+        for (Path path : Path.values()) {
+            final int limit = path == Path.SNAPSHOT
+                ? configuration.getSnapshotConcurrency()
+                : configuration.getVersionConcurrency();
+            limits.put(path, limit);
+            tapGuards.put(path, new Guard(tapBreaker, new Bulkhead("tap-" + path.name().toLowerCase(), limit),
+                timeoutMillis, scheduler));
+            cdhGuards.put(path, new Guard(cdhBreaker, new Bulkhead("cdh-" + path.name().toLowerCase(), limit),
+                timeoutMillis, scheduler));
+        }
+    }
+
+    /**
+     * Guards which let every call through.
+     */
+    public static UpstreamGuards disabled() {
+        final ResilienceConfiguration configuration = new ResilienceConfiguration();
+        configuration.setEnabled(false);
+        configuration.setHedging(false);
+        return new UpstreamGuards(configuration, Schedulers.immediate());
+    }
+
+    public CircuitBreaker getTapBreaker() {
+        return tapBreaker;
+    }
+
+    public CircuitBreaker getCdhBreaker() {
+        return cdhBreaker;
+    }
+
+    /**
+     * Calls to one upstream let through at the same time on the path, callers fanning out
+     * should not subscribe to more of them at once since the calls over it are rejected.
+     */
+    public int concurrency(Path path) {
+        return enabled ? limits.get(path) : Integer.MAX_VALUE;
+    }
+
+    public TapOperations tap(TapOperations operations, Path path) {
+        Objects.requireNonNull(operations, "operations");
+        if (!enabled && hedging == null) {
+            return operations;
+        }
+        return new TapOperations() {
+            @Override
+            public Observable<TapApplication> getApplications() {
+                return call(tapGuards, path, "tap.applications", operations::getApplications);
+            }
+
+            @Override
+            public Observable<TapService> getServices() {
+                return call(tapGuards, path, "tap.services", () -> operations.getServices());
+            }
+
+            @Override
+            public Observable<TapService> getServices(URI uri) {
+                return call(tapGuards, path, "tap.services", () -> operations.getServices(uri));
+            }
+
+            @Override
+            public Observable<TapInfo> getTapInfo() {
+                return call(tapGuards, path, "tap.info", operations::getTapInfo);
+            }
+        };
+    }
+
+    public CdhRxOperations cdh(CdhRxOperations operations, Path path) {
+        Objects.requireNonNull(operations, "operations");
+        if (!enabled && hedging == null) {
+            return operations;
+        }
+        return new CdhRxOperations() {
+            @Override
+            public Observable<CdhClusters> clusters() {
+                return call(cdhGuards, path, "cdh.clusters", operations::clusters);
+            }
+
+            @Override
+            public Observable<CdhServices> services(String cluster) {
+                return call(cdhGuards, path, "cdh.services", () -> operations.services(cluster));
+            }
+        };
+    }
+
+    private <T> Observable<T> call(Map<Path, Guard> guards, Path path, String operation, Func0<Observable<T>> call) {
+        final Observable<T> hedged = hedging != null ? hedging.hedge(operation, call) : Observable.defer(call);
+        return enabled ? guards.get(path).protect(hedged) : hedged;
+    }
+
+    private static CircuitBreaker circuitBreaker(String name, ResilienceConfiguration configuration) {
+        return new CircuitBreaker(name, configuration.getWindowSeconds(), configuration.getMinimumCalls(),
+            configuration.getFailureRateThreshold(), configuration.getOpenSeconds() * 1000L,
+            configuration.getHalfOpenCalls());
+    }
+}
@@ -23,4 +23,10 @@ public class AccessTokenResponse
 {
     @JsonProperty("access_token")
     private String accessToken;
+
+    /**
+     * Lifetime of the token in seconds.
+     */
+    @JsonProperty("expires_in")
+    private Long expiresIn;
 }
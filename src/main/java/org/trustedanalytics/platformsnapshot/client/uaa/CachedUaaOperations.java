@@ -16,60 +16,51 @@
 
 package org.trustedanalytics.platformsnapshot.client.uaa;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import feign.Client;
 import feign.Feign;
 import feign.auth.BasicAuthRequestInterceptor;
-import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.slf4j.Slf4jLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.decoder.JsonReaderDecoder;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CachedUaaOperations implements UaaOperations {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CachedUaaOperations.class);
-    public static final String CACHE_KEY = "CACHE_KEY";
     private final UaaOperations uaaOperations;
-    LoadingCache<String, AccessTokenResponse> tokenCache;
-    private final ObjectMapper objectMapper;
+    private final TokenHolder tokens;
 
     public CachedUaaOperations(String uaaUri, String clientId, String clientSecret) {
-        objectMapper = new ObjectMapper()
-                .setPropertyNamingStrategy(new PropertyNamingStrategy.LowerCaseWithUnderscoresStrategy())
-                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this(uaaUri, clientId, clientSecret, new Client.Default(null, null));
+    }
 
-        uaaOperations = Feign.builder().encoder(new JacksonEncoder(objectMapper))
-                .decoder(new JacksonDecoder(objectMapper))
+    public CachedUaaOperations(String uaaUri, String clientId, String clientSecret, Client client) {
+        uaaOperations = Feign.builder().encoder(new JacksonEncoder(JsonMapping.tap().mapper()))
+                .decoder(new JsonReaderDecoder(JsonMapping.tap()))
                 .logger(new Slf4jLogger(UaaOperations.class))
                 .requestInterceptor(new BasicAuthRequestInterceptor(clientId, clientSecret))
+                .client(client)
                 .logLevel(feign.Logger.Level.BASIC)
                 .target(UaaOperations.class, uaaUri);
 
-        tokenCache =
-                CacheBuilder.newBuilder()
-                        .maximumSize(1)
-                        .expireAfterAccess(30, TimeUnit.SECONDS)
-                        .build(new CacheLoader<String, AccessTokenResponse>() {
-
-                            @Override
-                            public AccessTokenResponse load(String key) throws Exception {
-                                LOGGER.info("Refreshing token at: {}",  new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()));
-                                //make the expensive call
-                                return uaaOperations.authenticate();
-                            }
-                        });
+        final ExecutorService refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("uaa-token-refresh-%d").setDaemon(true).build());
+        tokens = new TokenHolder(() -> {
+            LOGGER.info("Refreshing token at: {}",  new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()));
+            //make the expensive call
+            return uaaOperations.authenticate();
+        }, refresher, System::currentTimeMillis);
     }
 
     @Override
-    public synchronized AccessTokenResponse authenticate() {
-        return tokenCache.getUnchecked(CACHE_KEY);
+    public AccessTokenResponse authenticate() {
+        return tokens.get();
     }
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.uaa;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the current access token and replaces it before it expires. Reads of a valid token
+ * do not lock. Once a token is past the refresh point, the first read starts a refresh in
+ * the background and the token keeps being served until the new one arrives. Only callers
+ * without a valid token wait, and all of them wait for the same refresh.
+ */
+class TokenHolder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenHolder.class);
+
+    /**
+     * Lifetime assumed when the token response does not state one.
+     */
+    static final long DEFAULT_LIFETIME_SECONDS = 30;
+
+    /**
+     * Share of the lifetime after which the token is refreshed.
+     */
+    static final double REFRESH_RATIO = 0.8;
+
+    private final Supplier<AccessTokenResponse> fetch;
+    private final Executor refresher;
+    private final LongSupplier clock;
+    private final AtomicReference<Token> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+
+    TokenHolder(Supplier<AccessTokenResponse> fetch, Executor refresher, LongSupplier clock) {
+        this.fetch = Objects.requireNonNull(fetch, "fetch");
+        this.refresher = Objects.requireNonNull(refresher, "refresher");
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    AccessTokenResponse get() {
+        final Token token = current.get();
+        final long now = clock.getAsLong();
+        if (token != null && now < token.expiresAt) {
+            if (now >= token.refreshAt) {
+                refresh();
+            }
+            return token.response;
+        }
+        try {
+            return refresh().join().response;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Joins the refresh in progress or starts a new one.
+     */
+    private CompletableFuture<Token> refresh() {
+        while (true) {
+            final CompletableFuture<Token> inProgress = refreshing.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+            final CompletableFuture<Token> started = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, started)) {
+                refresher.execute(() -> fetchInto(started));
+                return started;
+            }
+        }
+    }
+
+    private void fetchInto(CompletableFuture<Token> refresh) {
+        try {
+            final Token token = new Token(fetch.get(), clock.getAsLong());
+            current.set(token);
+            refreshing.compareAndSet(refresh, null);
+            refresh.complete(token);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to refresh the access token", e);
+            refreshing.compareAndSet(refresh, null);
+            refresh.completeExceptionally(e);
+        }
+    }
+
+    private static final class Token {
+        private final AccessTokenResponse response;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private Token(AccessTokenResponse response, long fetchedAt) {
+            this.response = response;
+            final long lifetime = TimeUnit.SECONDS.toMillis(
+                response.getExpiresIn() != null && response.getExpiresIn() > 0
+                    ? response.getExpiresIn()
+                    : DEFAULT_LIFETIME_SECONDS);
+            // stop serving the token a little early, so it does not expire on the way to TAP
+            this.expiresAt = fetchedAt + lifetime - Math.min(TimeUnit.SECONDS.toMillis(5), lifetime / 10);
+            this.refreshAt = fetchedAt + (long) (lifetime * REFRESH_RATIO);
+        }
+    }
+}
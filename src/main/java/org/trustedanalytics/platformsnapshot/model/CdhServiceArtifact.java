@@ -17,8 +17,11 @@ package org.trustedanalytics.platformsnapshot.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhService;
 
 import javax.persistence.Column;
@@ -26,8 +29,8 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import java.io.Serializable;
 import java.util.Objects;
@@ -36,17 +39,17 @@ import java.util.Objects;
 @Table(name = "CDH_SERVICE_ARTIFACT")
 @NoArgsConstructor
 @Entity
-public class CdhServiceArtifact implements Serializable {
+public class CdhServiceArtifact implements SnapshotArtifact, Serializable {
 
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @SequenceGenerator(name = "cdh-artifact-ids", sequenceName = "CDH_ARTIFACT_ID_SEQ",
+            allocationSize = SnapshotArtifact.ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cdh-artifact-ids")
     @JsonIgnore
     private Long id;
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "SNAPSHOT_ID")
-    @JsonIgnore
-    private PlatformSnapshot snapshot;
+    @Column(name="CLUSTER_NAME")
+    private String clusterName;
     @Column(name="NAME")
     private String name;
     @Column(name="TYPE")
@@ -57,8 +60,17 @@ public class CdhServiceArtifact implements Serializable {
     private String healthSummary;
     @Column(name="ENTITY_STATUS")
     private String entityStatus;
+    @Column(name="CONTENT_HASH")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String contentHash;
 
     public CdhServiceArtifact(CdhService cdhService) {
+        this(null, cdhService);
+    }
+
+    public CdhServiceArtifact(String clusterName, CdhService cdhService) {
+        this.clusterName = clusterName;
         this.name = cdhService.getName();
         this.type = cdhService.getType();
         this.serviceState = cdhService.getServiceState();
@@ -66,6 +78,21 @@ public class CdhServiceArtifact implements Serializable {
         this.entityStatus = cdhService.getEntityStatus();
     }
 
+    @Override
+    public String key() {
+        return clusterName == null ? name : clusterName + "/" + name;
+    }
+
+    @Override
+    public String computeContentHash() {
+        return ContentHash.of(clusterName, name, type, serviceState, healthSummary, entityStatus);
+    }
+
+    @PrePersist
+    private void updateContentHash() {
+        this.contentHash = computeContentHash();
+    }
+
     @Override
     public boolean equals(Object other) {
         if(other == this) {
@@ -76,16 +103,18 @@ public class CdhServiceArtifact implements Serializable {
             return false;
         }
 
-        return Objects.equals(name, ((CdhServiceArtifact) other).name);
+        final CdhServiceArtifact artifact = (CdhServiceArtifact) other;
+        return Objects.equals(clusterName, artifact.clusterName) && Objects.equals(name, artifact.name);
     }
 
     @Override
-    public int hashCode() { return Objects.hashCode(name); }
+    public int hashCode() { return Objects.hash(clusterName, name); }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("id", id)
+                .add("clusterName", clusterName)
                 .add("name", name)
                 .add("type", type)
                 .add("serviceState", serviceState)
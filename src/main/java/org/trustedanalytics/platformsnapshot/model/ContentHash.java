@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.model;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+final class ContentHash {
+
+    private static final char SEPARATOR = '\u001f';
+    private static final String NULL = "\u0000";
+
+    private ContentHash() {
+    }
+
+    static String of(Object... values) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        for (Object value : values) {
+            hasher.putString(asString(value), StandardCharsets.UTF_8).putChar(SEPARATOR);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String asString(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        return value instanceof Date ? Long.toString(((Date) value).getTime()) : value.toString();
+    }
+}
@@ -22,18 +22,26 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.OneToMany;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import javax.persistence.MapKeyColumn;
+import javax.persistence.MapKeyEnumerated;
 import javax.persistence.Table;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Date;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Entity
 @Table(name = "PLATFORM_SNAPSHOT")
@@ -43,6 +51,8 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class PlatformSnapshot implements Serializable {
 
+    public static final int CDH_VERSION_LENGTH = 1024;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -53,21 +63,64 @@ public class PlatformSnapshot implements Serializable {
     @Column(name="CREATED_At")
     private Date createdAt;
 
-    @Column(name="CDH_VERSION")
+    @Column(name="CDH_VERSION", length = CDH_VERSION_LENGTH)
     private String cdhVersion;
 
     @Column(name="K8S_VERSION")
     private String k8sVersion;
 
-    @OneToMany(mappedBy = "snapshot", cascade = CascadeType.ALL)
+    // The header row is written before any artifact, it is set once all of them are stored
+    @Column(name="COMPLETED_AT")
+    private Date completedAt;
+
+    // Artifacts which differ from the previous snapshot, used to adapt the schedule
+    @Column(name="TOTAL_ARTIFACTS")
+    private Long totalArtifacts;
+
+    @Column(name="CHANGED_ARTIFACTS")
+    private Long changedArtifacts;
+
+    // Artifacts of the previous snapshot which are not part of this one any more
+    @Column(name="REMOVED_ARTIFACTS")
+    private Long removedArtifacts;
+
+    // Artifacts are shared between snapshots through membership tables, so an artifact
+    // which did not change since the previous snapshot is not stored again.
+    @ManyToMany(cascade = CascadeType.PERSIST)
+    @JoinTable(name = "SNAPSHOT_TAP_APPLICATION",
+        joinColumns = @JoinColumn(name = "SNAPSHOT_ID"),
+        inverseJoinColumns = @JoinColumn(name = "ARTIFACT_ID"))
     private Collection<TapApplicationArtifact> applications;
 
-    @OneToMany(mappedBy = "snapshot", cascade = CascadeType.ALL)
+    @ManyToMany(cascade = CascadeType.PERSIST)
+    @JoinTable(name = "SNAPSHOT_CDH_SERVICE",
+        joinColumns = @JoinColumn(name = "SNAPSHOT_ID"),
+        inverseJoinColumns = @JoinColumn(name = "ARTIFACT_ID"))
     private Collection<CdhServiceArtifact> cdhServices;
 
-    @OneToMany(mappedBy = "snapshot", cascade = CascadeType.ALL)
+    @ManyToMany(cascade = CascadeType.PERSIST)
+    @JoinTable(name = "SNAPSHOT_TAP_SERVICE",
+        joinColumns = @JoinColumn(name = "SNAPSHOT_ID"),
+        inverseJoinColumns = @JoinColumn(name = "ARTIFACT_ID"))
     private Collection<TapServiceArtifact> tapServices;
 
+    // Snapshots stored before the status was introduced have no entries and are complete
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "SNAPSHOT_SOURCE_STATUS", joinColumns = @JoinColumn(name = "SNAPSHOT_ID"))
+    @MapKeyColumn(name = "SOURCE")
+    @MapKeyEnumerated(EnumType.STRING)
+    @Column(name = "STATUS")
+    @Enumerated(EnumType.STRING)
+    private Map<SnapshotSource, SourceStatus> sourceStatus;
+
+    // Services of a cluster which failed or was late are incomplete, those of the other clusters are not
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "SNAPSHOT_CDH_CLUSTER_STATUS", joinColumns = @JoinColumn(name = "SNAPSHOT_ID"))
+    @MapKeyColumn(name = "CLUSTER_NAME")
+    @Column(name = "STATUS")
+    @Enumerated(EnumType.STRING)
+    private Map<String, SourceStatus> cdhClusterStatus;
+
     public PlatformSnapshot(Date createdAt,
                             String platformVersion,
                             Collection<TapApplicationArtifact> applications,
@@ -83,10 +136,25 @@ public class PlatformSnapshot implements Serializable {
         this.cdhVersion = cdhVersion;
         this.k8sVersion = k8sVersion;
         this.tapServices = tapServices;
+    }
+
+    /**
+     * A snapshot which is still being collected, or whose run crashed, has no completion
+     * time and none of its sources counts as complete.
+     */
+    public boolean isComplete(SnapshotSource source) {
+        return completedAt != null
+            && (sourceStatus == null || sourceStatus.getOrDefault(source, SourceStatus.COMPLETE) == SourceStatus.COMPLETE);
+    }
 
-        cdhServices.forEach(cdhService -> cdhService.setSnapshot(this));
-        applications.forEach(application -> application.setSnapshot(this));
-        tapServices.forEach(tapService -> tapService.setSnapshot(this));
+    /**
+     * Whether the services of the cluster are complete. Services stored without a cluster
+     * name, or in snapshots stored before clusters got their own status, follow the source.
+     */
+    public boolean isCdhClusterComplete(String cluster) {
+        return isComplete(SnapshotSource.CDH_SERVICES)
+            && (cluster == null || cdhClusterStatus == null
+                || cdhClusterStatus.getOrDefault(cluster, SourceStatus.COMPLETE) == SourceStatus.COMPLETE);
     }
 
     @Override
@@ -97,6 +165,12 @@ public class PlatformSnapshot implements Serializable {
                 .add("createdAt", createdAt)
                 .add("cdhVersion", cdhVersion)
                 .add("k8sVersion", k8sVersion)
+                .add("completedAt", completedAt)
+                .add("totalArtifacts", totalArtifacts)
+                .add("changedArtifacts", changedArtifacts)
+                .add("removedArtifacts", removedArtifacts)
+                .add("sourceStatus", sourceStatus)
+                .add("cdhClusterStatus", cdhClusterStatus)
                 .toString();
     }
 }
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.model;
+
+/**
+ * Artifact which can be shared between consecutive snapshots when its content
+ * does not change.
+ */
+public interface SnapshotArtifact {
+
+    /**
+     * Number of ids taken from an artifact sequence at once, it must match the INCREMENT BY
+     * of the sequence set in V9__artifact_id_allocation.sql.
+     */
+    int ID_ALLOCATION_SIZE = 50;
+
+    Long getId();
+
+    /**
+     * Identity of the artifact across snapshots.
+     */
+    String key();
+
+    /**
+     * Hash of all persisted attributes except the database id.
+     */
+    String computeContentHash();
+}
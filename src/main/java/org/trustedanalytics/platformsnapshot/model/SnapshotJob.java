@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a single platform snapshot collection. Every trigger that arrives while
+ * a job is queued or running is merged into that job and receives its id. A trigger
+ * received by a replica which is not the leader is forwarded to the leader.
+ */
+@Getter
+public class SnapshotJob {
+
+    public enum Phase { QUEUED, FORWARDED, COLLECTING, PERSISTING, COMPLETED, FAILED }
+
+    public enum SourceState { PENDING, RUNNING, COMPLETED, TIMED_OUT, FAILED }
+
+    private final String id;
+    private final Date requestedAt;
+    private final Map<SnapshotSource, SourceProgress> sources;
+    private volatile Phase phase;
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+    private volatile Long snapshotId;
+    private volatile String error;
+    // ids of triggers forwarded by other replicas which were merged into this job
+    @JsonIgnore
+    private final Set<String> mergedIds = ConcurrentHashMap.newKeySet();
+
+    public SnapshotJob() {
+        this(UUID.randomUUID().toString());
+    }
+
+    public SnapshotJob(String id) {
+        this.id = id;
+        this.requestedAt = new Date();
+        this.phase = Phase.QUEUED;
+
+        final Map<SnapshotSource, SourceProgress> progress = new EnumMap<>(SnapshotSource.class);
+        for (SnapshotSource source : SnapshotSource.values()) {
+            progress.put(source, new SourceProgress());
+        }
+        this.sources = Collections.unmodifiableMap(progress);
+    }
+
+    /**
+     * Job as stored by the leader replica, without the progress of single sources.
+     */
+    public static SnapshotJob stored(String id, Phase phase, Long snapshotId, Date updatedAt) {
+        final SnapshotJob job = new SnapshotJob(id);
+        job.phase = phase;
+        job.snapshotId = snapshotId;
+        if (job.isFinished()) {
+            job.finishedAt = updatedAt;
+        }
+        return job;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return phase == Phase.COMPLETED || phase == Phase.FAILED || phase == Phase.FORWARDED;
+    }
+
+    public void forwarded() {
+        finish(Phase.FORWARDED);
+    }
+
+    public void collecting() {
+        startedAt = new Date();
+        phase = Phase.COLLECTING;
+    }
+
+    public void persisting() {
+        phase = Phase.PERSISTING;
+    }
+
+    public void completed(Long snapshotId) {
+        this.snapshotId = snapshotId;
+        finish(Phase.COMPLETED);
+    }
+
+    public void failed(Throwable cause) {
+        this.error = cause.toString();
+        finish(Phase.FAILED);
+    }
+
+    public void sourceStarted(SnapshotSource source) {
+        sources.get(source).state = SourceState.RUNNING;
+    }
+
+    public void sourceProgressed(SnapshotSource source) {
+        sources.get(source).collected.incrementAndGet();
+    }
+
+    public void sourceCompleted(SnapshotSource source) {
+        sources.get(source).state = SourceState.COMPLETED;
+    }
+
+    public void sourceTimedOut(SnapshotSource source) {
+        sources.get(source).state = SourceState.TIMED_OUT;
+    }
+
+    public void sourceFailed(SnapshotSource source) {
+        sources.get(source).state = SourceState.FAILED;
+    }
+
+    /**
+     * Completeness of every source, as stored with the snapshot.
+     */
+    public Map<SnapshotSource, SourceStatus> sourceStatus() {
+        final Map<SnapshotSource, SourceStatus> status = new EnumMap<>(SnapshotSource.class);
+        sources.forEach((source, progress) -> {
+            if (progress.state == SourceState.COMPLETED) {
+                status.put(source, SourceStatus.COMPLETE);
+            } else if (progress.state == SourceState.TIMED_OUT) {
+                status.put(source, SourceStatus.TIMED_OUT);
+            } else {
+                status.put(source, SourceStatus.FAILED);
+            }
+        });
+        return status;
+    }
+
+    private void finish(Phase phase) {
+        finishedAt = new Date();
+        this.phase = phase;
+    }
+
+    public static class SourceProgress {
+        private volatile SourceState state = SourceState.PENDING;
+        private final AtomicLong collected = new AtomicLong();
+
+        public SourceState getState() {
+            return state;
+        }
+
+        public long getCollected() {
+            return collected.get();
+        }
+    }
+}
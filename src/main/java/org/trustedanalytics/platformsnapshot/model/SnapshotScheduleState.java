@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Scheduling state shared by all replicas, so that the cadence survives restarts. The
+ * table holds a single row.
+ */
+@Entity
+@Table(name = "SNAPSHOT_SCHEDULE_STATE")
+@Data
+@NoArgsConstructor
+public class SnapshotScheduleState implements Serializable {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    @Column(name="ID")
+    private Long id = SINGLETON_ID;
+
+    @Column(name="NEXT_RUN_AT")
+    private Date nextRunAt;
+
+    @Column(name="LAST_CATCH_UP_AT")
+    private Date lastCatchUpAt;
+
+    // Interval of the adaptive schedule, adapted after every snapshot
+    @Column(name="INTERVAL_MILLIS")
+    private Long intervalMillis;
+}
@@ -31,32 +31,33 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 @Data
 @Table(name = "TAP_APPLICATION_ARTIFACT")
 @NoArgsConstructor
 @Entity
-public class TapApplicationArtifact implements  Serializable {
+public class TapApplicationArtifact implements SnapshotArtifact, Serializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TapApplicationArtifact.class);
     public static final String IMAGE_ADDRESS_KEY = "APPLICATION_IMAGE_ADDRESS";
     public static final String URLS_KEY = "urls";
 
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @SequenceGenerator(name = "artifact-ids", sequenceName = "ARTIFACT_ID_SEQ",
+            allocationSize = SnapshotArtifact.ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "artifact-ids")
     @JsonIgnore
     private Long id;
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "SNAPSHOT_ID")
-    @JsonIgnore
-    private PlatformSnapshot snapshot;
     @Column(name="GUID")
     private String guid;
     @Column(name="CREATED_AT")
@@ -85,6 +86,10 @@ public class TapApplicationArtifact implements  Serializable {
     private String updatedBy;
     @Column(name="IMAGE_TYPE")
     private String imageType;
+    @Column(name="CONTENT_HASH")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String contentHash;
 
 
     public TapApplicationArtifact(TapApplication tapApp) {
@@ -117,6 +122,22 @@ public class TapApplicationArtifact implements  Serializable {
         LOGGER.info("Application artifact {}", toString());
     }
 
+    @Override
+    public String key() {
+        return guid;
+    }
+
+    @Override
+    public String computeContentHash() {
+        return ContentHash.of(guid, createdAt, updatedAt, name, version, state, memory, instances, diskQuota,
+                imageAddress, urls, createdBy, updatedBy, imageType);
+    }
+
+    @PrePersist
+    private void updateContentHash() {
+        this.contentHash = computeContentHash();
+    }
+
     @Override
     public boolean equals(Object other) {
         if(other == this) {
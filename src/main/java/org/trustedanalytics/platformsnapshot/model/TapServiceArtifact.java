@@ -17,8 +17,11 @@ package org.trustedanalytics.platformsnapshot.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.trustedanalytics.platformsnapshot.client.entity.TapService;
@@ -28,8 +31,8 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import java.io.Serializable;
@@ -42,19 +45,16 @@ import java.util.Optional;
 @Table(name = "TAP_SERVICE_ARTIFACT")
 @NoArgsConstructor
 @Entity
-public class TapServiceArtifact implements Serializable {
+public class TapServiceArtifact implements SnapshotArtifact, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TapServiceArtifact.class);
 
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @SequenceGenerator(name = "tap-service-artifact-ids", sequenceName = "TAP_SERVICE_ARTIFACT_ID_SEQ",
+            allocationSize = SnapshotArtifact.ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tap-service-artifact-ids")
     @JsonIgnore
     private Long id;
 
-    @ManyToOne(optional = false)
-    @JoinColumn(name = "SNAPSHOT_ID")
-    @JsonIgnore
-    private PlatformSnapshot snapshot;
-
     @Column(name="LABEL")
     private String label;
     @Column(name="DESCRIPTION")
@@ -65,6 +65,10 @@ public class TapServiceArtifact implements Serializable {
     private Date createdAt;
     @Column(name="GUID")
     private String guid;
+    @Column(name="CONTENT_HASH")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String contentHash;
 
     public TapServiceArtifact(TapService tapService) {
 
@@ -77,6 +81,21 @@ public class TapServiceArtifact implements Serializable {
 
     }
 
+    @Override
+    public String key() {
+        return guid;
+    }
+
+    @Override
+    public String computeContentHash() {
+        return ContentHash.of(label, description, updatedAt, createdAt, guid);
+    }
+
+    @PrePersist
+    private void updateContentHash() {
+        this.contentHash = computeContentHash();
+    }
+
     @Override
     public boolean equals(Object other) {
         if(other == this) {
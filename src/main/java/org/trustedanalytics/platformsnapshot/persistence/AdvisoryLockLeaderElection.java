@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.trustedanalytics.platformsnapshot.service.LeaderElection;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+/**
+ * Leader election based on a session level Postgres advisory lock. The lock is held on a
+ * dedicated connection outside of the connection pool, so it is released by the database as soon
+ * as the leader replica dies or loses its connection, and one of the other replicas acquires it
+ * on its next heartbeat.
+ */
+@Component
+@Profile("cloud")
+public class AdvisoryLockLeaderElection implements LeaderElection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdvisoryLockLeaderElection.class);
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final long lockKey;
+    private final int heartbeatSeconds;
+    private final ScheduledExecutorService heartbeat;
+
+    private volatile boolean leader;
+
+    // accessed only from the heartbeat thread
+    private Connection connection;
+
+    @Autowired
+    public AdvisoryLockLeaderElection(@Qualifier("leaderLockDataSource") DataSource dataSource,
+                                      SnapshotConfiguration configuration) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        this.enabled = configuration.isLeaderElection();
+        this.lockKey = configuration.getLeaderLockKey();
+        this.heartbeatSeconds = configuration.getLeaderHeartbeatSeconds();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("snapshot-leader-%d").setDaemon(true).build());
+    }
+
+    @Override
+    public boolean isLeader() {
+        return !enabled || leader;
+    }
+
+    @PostConstruct
+    private void start() {
+        if (enabled) {
+            heartbeat.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatSeconds, TimeUnit.SECONDS);
+        } else {
+            LOGGER.info("Leader election disabled, this replica collects snapshots");
+        }
+    }
+
+    @PreDestroy
+    private void stop() throws InterruptedException {
+        heartbeat.shutdownNow();
+        heartbeat.awaitTermination(heartbeatSeconds, TimeUnit.SECONDS);
+        leader = false;
+        close();
+    }
+
+    private void heartbeat() {
+        try {
+            if (connection == null) {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(true);
+            }
+            if (leader) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+            } else if (tryLock()) {
+                leader = true;
+                LOGGER.info("Acquired leader lock {}, this replica collects snapshots", lockKey);
+            }
+        } catch (SQLException e) {
+            if (leader) {
+                LOGGER.warn("Lost leader lock {}", lockKey, e);
+            } else {
+                LOGGER.warn("Unable to check leader lock {}", lockKey, e);
+            }
+            leader = false;
+            close();
+        }
+    }
+
+    private boolean tryLock() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, lockKey);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private void close() {
+        if (connection != null) {
+            try {
+                // closing the session releases the advisory lock
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Error while closing leader lock connection", e);
+            }
+            connection = null;
+        }
+    }
+}
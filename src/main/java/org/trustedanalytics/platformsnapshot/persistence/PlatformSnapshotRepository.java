@@ -29,11 +29,13 @@ import java.util.Date;
 @Repository
 public interface PlatformSnapshotRepository extends CrudRepository<PlatformSnapshot, Long> {
 
-    @Query("select p from PlatformSnapshot p where p.createdAt between ?1 and ?2 order by p.createdAt desc")
+    @Query("select p from PlatformSnapshot p where p.createdAt between ?1 and ?2 and p.completedAt is not null order by p.createdAt desc")
     Collection<PlatformSnapshot> findByDates(Date from, Date to);
 
     PlatformSnapshot findTopByOrderByCreatedAtDesc();
 
+    PlatformSnapshot findTopByCompletedAtNotNullOrderByCreatedAtDesc();
+
     @Modifying
     @Transactional
     @Query("delete from PlatformSnapshot p where p.createdAt <= ?1")
@@ -41,16 +43,49 @@ public interface PlatformSnapshotRepository extends CrudRepository<PlatformSnaps
 
     @Modifying
     @Transactional
-    @Query("delete from TapApplicationArtifact a where a.snapshot.createdAt <= ?1")
-    void deleteApplicationArtifacts(Date date);
+    @Query(value = "DELETE FROM SNAPSHOT_TAP_APPLICATION WHERE SNAPSHOT_ID IN "
+        + "(SELECT ID FROM PLATFORM_SNAPSHOT WHERE CREATED_AT <= ?1)", nativeQuery = true)
+    void deleteApplicationMemberships(Date date);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM SNAPSHOT_CDH_SERVICE WHERE SNAPSHOT_ID IN "
+        + "(SELECT ID FROM PLATFORM_SNAPSHOT WHERE CREATED_AT <= ?1)", nativeQuery = true)
+    void deleteCdhServiceMemberships(Date date);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM SNAPSHOT_TAP_SERVICE WHERE SNAPSHOT_ID IN "
+        + "(SELECT ID FROM PLATFORM_SNAPSHOT WHERE CREATED_AT <= ?1)", nativeQuery = true)
+    void deleteCfServiceMemberships(Date date);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM SNAPSHOT_SOURCE_STATUS WHERE SNAPSHOT_ID IN "
+        + "(SELECT ID FROM PLATFORM_SNAPSHOT WHERE CREATED_AT <= ?1)", nativeQuery = true)
+    void deleteSourceStatuses(Date date);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM SNAPSHOT_CDH_CLUSTER_STATUS WHERE SNAPSHOT_ID IN "
+        + "(SELECT ID FROM PLATFORM_SNAPSHOT WHERE CREATED_AT <= ?1)", nativeQuery = true)
+    void deleteCdhClusterStatuses(Date date);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM TAP_APPLICATION_ARTIFACT a WHERE NOT EXISTS "
+        + "(SELECT 1 FROM SNAPSHOT_TAP_APPLICATION m WHERE m.ARTIFACT_ID = a.ID)", nativeQuery = true)
+    void deleteOrphanedApplicationArtifacts();
 
     @Modifying
     @Transactional
-    @Query("delete from CdhServiceArtifact s where s.snapshot.createdAt <= ?1")
-    void deleteCdhServiceArtifact(Date date);
+    @Query(value = "DELETE FROM CDH_SERVICE_ARTIFACT a WHERE NOT EXISTS "
+        + "(SELECT 1 FROM SNAPSHOT_CDH_SERVICE m WHERE m.ARTIFACT_ID = a.ID)", nativeQuery = true)
+    void deleteOrphanedCdhServiceArtifacts();
 
     @Modifying
     @Transactional
-    @Query("delete from TapServiceArtifact s where s.snapshot.createdAt <= ?1")
-    void deleteCfServiceArtifact(Date date);
+    @Query(value = "DELETE FROM TAP_SERVICE_ARTIFACT a WHERE NOT EXISTS "
+        + "(SELECT 1 FROM SNAPSHOT_TAP_SERVICE m WHERE m.ARTIFACT_ID = a.ID)", nativeQuery = true)
+    void deleteOrphanedCfServiceArtifacts();
 }
@@ -34,9 +34,15 @@ public class PlatformSnapshotTransactions {
     }
 
     public void deleteOlderThen(Date date) {
-        platformSnapshotRepository.deleteApplicationArtifacts(date);
-        platformSnapshotRepository.deleteCfServiceArtifact(date);
-        platformSnapshotRepository.deleteCdhServiceArtifact(date);
+        platformSnapshotRepository.deleteApplicationMemberships(date);
+        platformSnapshotRepository.deleteCfServiceMemberships(date);
+        platformSnapshotRepository.deleteCdhServiceMemberships(date);
+        platformSnapshotRepository.deleteSourceStatuses(date);
+        platformSnapshotRepository.deleteCdhClusterStatuses(date);
         platformSnapshotRepository.deletePlatformSnapshotsOlderThen(date);
+        // artifacts can be shared with newer snapshots, so only unreferenced ones are removed
+        platformSnapshotRepository.deleteOrphanedApplicationArtifacts();
+        platformSnapshotRepository.deleteOrphanedCfServiceArtifacts();
+        platformSnapshotRepository.deleteOrphanedCdhServiceArtifacts();
     }
 }
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.trustedanalytics.platformsnapshot.model.CdhServiceArtifact;
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+import org.trustedanalytics.platformsnapshot.model.SnapshotArtifact;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
+import org.trustedanalytics.platformsnapshot.model.SourceStatus;
+import org.trustedanalytics.platformsnapshot.model.TapApplicationArtifact;
+import org.trustedanalytics.platformsnapshot.model.TapServiceArtifact;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Persists a snapshot while it is being collected. The header row is created first,
+ * artifacts are appended in batches, each in its own transaction, and the header is
+ * completed once every source is stored. Artifacts are compared by content hash with
+ * the previous completed snapshot and the number of changed ones is kept in the header.
+ *
+ * In incremental mode an artifact whose content hash matches an artifact of the
+ * previous completed snapshot is not inserted again, the new snapshot references the
+ * existing row through the membership table instead.
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRED)
+public class PlatformSnapshotWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlatformSnapshotWriter.class);
+
+    private static final String PREVIOUS_ARTIFACTS_QUERY = "SELECT a.ID, a.CONTENT_HASH FROM %s a "
+        + "JOIN %s m ON m.ARTIFACT_ID = a.ID "
+        + "WHERE m.SNAPSHOT_ID = (SELECT ID FROM PLATFORM_SNAPSHOT "
+        + "WHERE COMPLETED_AT IS NOT NULL AND CREATED_AT < :createdAt ORDER BY CREATED_AT DESC LIMIT 1) "
+        + "AND a.CONTENT_HASH IN (:hashes)";
+
+    private static final String REMOVED_ARTIFACTS_QUERY = "SELECT COUNT(*) FROM %1$s pa "
+        + "JOIN %2$s pm ON pm.ARTIFACT_ID = pa.ID "
+        + "WHERE pm.SNAPSHOT_ID = (SELECT ID FROM PLATFORM_SNAPSHOT "
+        + "WHERE COMPLETED_AT IS NOT NULL AND CREATED_AT < :createdAt ORDER BY CREATED_AT DESC LIMIT 1) "
+        + "AND NOT EXISTS (SELECT 1 FROM %1$s a JOIN %2$s m ON m.ARTIFACT_ID = a.ID "
+        + "WHERE m.SNAPSHOT_ID = :snapshotId AND %3$s)";
+
+    private static final String MEMBERSHIP_INSERT = "INSERT INTO %s (SNAPSHOT_ID, ARTIFACT_ID) VALUES (?, ?)";
+
+    private static final String MEMBERSHIP_DELETE = "DELETE FROM %s WHERE SNAPSHOT_ID = ?";
+
+    // previous services of clusters which are incomplete in this snapshot are only missing
+    private static final String INCOMPLETE_CLUSTERS_CONDITION = " AND pa.CLUSTER_NAME NOT IN (:incompleteClusters)";
+
+    private static final String SOURCE_STATUS_DELETE = "DELETE FROM SNAPSHOT_SOURCE_STATUS WHERE SNAPSHOT_ID = ?";
+
+    private static final String CLUSTER_STATUS_DELETE = "DELETE FROM SNAPSHOT_CDH_CLUSTER_STATUS WHERE SNAPSHOT_ID = ?";
+
+    private static final String HEADER_DELETE = "DELETE FROM PLATFORM_SNAPSHOT WHERE ID = ? AND COMPLETED_AT IS NULL";
+
+    private static final String COUNTERS_UPDATE = "UPDATE PLATFORM_SNAPSHOT "
+        + "SET TOTAL_ARTIFACTS = TOTAL_ARTIFACTS + ?, CHANGED_ARTIFACTS = CHANGED_ARTIFACTS + ? WHERE ID = ?";
+
+    private enum ArtifactTable {
+        TAP_APPLICATION("TAP_APPLICATION_ARTIFACT", "SNAPSHOT_TAP_APPLICATION", SnapshotSource.TAP_APPLICATIONS,
+            "a.GUID = pa.GUID"),
+        TAP_SERVICE("TAP_SERVICE_ARTIFACT", "SNAPSHOT_TAP_SERVICE", SnapshotSource.TAP_SERVICES,
+            "a.GUID = pa.GUID"),
+        // services stored before the cluster name was recorded match a service of any cluster
+        CDH_SERVICE("CDH_SERVICE_ARTIFACT", "SNAPSHOT_CDH_SERVICE", SnapshotSource.CDH_SERVICES,
+            "a.NAME = pa.NAME AND (a.CLUSTER_NAME = pa.CLUSTER_NAME OR pa.CLUSTER_NAME IS NULL)");
+
+        private final String artifacts;
+        private final String memberships;
+        private final SnapshotSource source;
+        // matches an artifact a of the snapshot with the same artifact pa of the previous one
+        private final String sameKey;
+
+        ArtifactTable(String artifacts, String memberships, SnapshotSource source, String sameKey) {
+            this.artifacts = artifacts;
+            this.memberships = memberships;
+            this.source = source;
+            this.sameKey = sameKey;
+        }
+    }
+
+    private final PlatformSnapshotRepository platformSnapshotRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean incremental;
+    // previous rows matched by the snapshots being written, the query finds them again for every batch
+    private final Map<Long, Map<ArtifactTable, Set<Long>>> matched = new ConcurrentHashMap<>();
+    private EntityManager entityManager;
+
+    @Autowired
+    public PlatformSnapshotWriter(PlatformSnapshotRepository platformSnapshotRepository,
+                                  NamedParameterJdbcTemplate jdbcTemplate,
+                                  SnapshotConfiguration configuration) {
+        this.platformSnapshotRepository = Objects.requireNonNull(platformSnapshotRepository, "platformSnapshotRepository");
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate, "jdbcTemplate");
+        this.incremental = configuration.isIncrementalPersistence();
+    }
+
+    @PersistenceContext
+    void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public PlatformSnapshot begin(Date createdAt) {
+        final PlatformSnapshot header = platformSnapshotRepository.save(PlatformSnapshot.builder()
+            .createdAt(createdAt)
+            .totalArtifacts(0L)
+            .changedArtifacts(0L)
+            .build());
+        LOGGER.info("Created platform snapshot {}", header.getId());
+        return header;
+    }
+
+    public void appendApplications(PlatformSnapshot header, List<TapApplicationArtifact> batch) {
+        append(header, batch, ArtifactTable.TAP_APPLICATION);
+    }
+
+    public void appendTapServices(PlatformSnapshot header, List<TapServiceArtifact> batch) {
+        append(header, batch, ArtifactTable.TAP_SERVICE);
+    }
+
+    public void appendCdhServices(PlatformSnapshot header, List<CdhServiceArtifact> batch) {
+        append(header, batch, ArtifactTable.CDH_SERVICE);
+    }
+
+    /**
+     * Stores the header attributes known only after collection, counts the artifacts removed
+     * since the previous snapshot and marks the snapshot as completed.
+     */
+    public PlatformSnapshot complete(PlatformSnapshot header) {
+        final PlatformSnapshot snapshot = platformSnapshotRepository.findOne(header.getId());
+        snapshot.setPlatformVersion(header.getPlatformVersion());
+        snapshot.setCdhVersion(truncate(header.getCdhVersion(), PlatformSnapshot.CDH_VERSION_LENGTH));
+        snapshot.setK8sVersion(header.getK8sVersion());
+        snapshot.setSourceStatus(header.getSourceStatus());
+        snapshot.setCdhClusterStatus(header.getCdhClusterStatus());
+        snapshot.setRemovedArtifacts(removedArtifacts(snapshot));
+        snapshot.setCompletedAt(new Date());
+        matched.remove(header.getId());
+        LOGGER.info("Completed platform snapshot {}", snapshot.getId());
+        return platformSnapshotRepository.save(snapshot);
+    }
+
+    /**
+     * Removes a snapshot whose collection failed, together with its memberships and the
+     * artifacts no other snapshot references, so no partial snapshot is left behind.
+     */
+    public void discard(PlatformSnapshot header) {
+        matched.remove(header.getId());
+        final JdbcOperations jdbc = jdbcTemplate.getJdbcOperations();
+        for (ArtifactTable table : ArtifactTable.values()) {
+            jdbc.update(String.format(MEMBERSHIP_DELETE, table.memberships), header.getId());
+        }
+        jdbc.update(SOURCE_STATUS_DELETE, header.getId());
+        jdbc.update(CLUSTER_STATUS_DELETE, header.getId());
+        jdbc.update(HEADER_DELETE, header.getId());
+        platformSnapshotRepository.deleteOrphanedApplicationArtifacts();
+        platformSnapshotRepository.deleteOrphanedCfServiceArtifacts();
+        platformSnapshotRepository.deleteOrphanedCdhServiceArtifacts();
+        LOGGER.info("Discarded platform snapshot {}", header.getId());
+    }
+
+    private <T extends SnapshotArtifact> void append(PlatformSnapshot header, List<T> batch, ArtifactTable table) {
+        final ListMultimap<String, Long> unchanged = previousArtifacts(header, batch, table);
+        final Set<Long> matchedIds = matched
+            .computeIfAbsent(header.getId(), id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(table, key -> Sets.newConcurrentHashSet());
+        unchanged.values().removeIf(matchedIds::contains);
+
+        final List<Long> artifactIds = new ArrayList<>(batch.size());
+        final List<T> inserted = new ArrayList<>(batch.size());
+        int changed = 0;
+        for (T artifact : batch) {
+            // a previous row matches at most once per snapshot, duplicates count as changed
+            final List<Long> candidates = unchanged.isEmpty()
+                ? null
+                : unchanged.get(artifact.computeContentHash());
+            final Long previousId = candidates != null && !candidates.isEmpty() ? candidates.remove(0) : null;
+            if (previousId != null) {
+                matchedIds.add(previousId);
+            } else {
+                changed++;
+            }
+            if (incremental && previousId != null) {
+                artifactIds.add(previousId);
+            } else {
+                entityManager.persist(artifact);
+                inserted.add(artifact);
+            }
+        }
+        entityManager.flush();
+        inserted.forEach(artifact -> artifactIds.add(artifact.getId()));
+
+        final List<Object[]> memberships = artifactIds.stream()
+            .map(id -> new Object[] {header.getId(), id})
+            .collect(Collectors.toList());
+        jdbcTemplate.getJdbcOperations().batchUpdate(String.format(MEMBERSHIP_INSERT, table.memberships), memberships);
+        jdbcTemplate.getJdbcOperations().update(COUNTERS_UPDATE, batch.size(), changed, header.getId());
+        LOGGER.info("Stored {} {} artifacts of snapshot {}, {} changed, {} shared with previous snapshot",
+            batch.size(), table, header.getId(), changed, batch.size() - inserted.size());
+    }
+
+    /**
+     * Artifacts of the previous completed snapshot without an artifact of the same key in this
+     * one. Sources which did not complete are not counted, their artifacts are only missing.
+     */
+    private long removedArtifacts(PlatformSnapshot snapshot) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("createdAt", snapshot.getCreatedAt())
+            .addValue("snapshotId", snapshot.getId());
+        final Set<String> incompleteClusters = snapshot.getCdhClusterStatus() == null
+            ? Collections.emptySet()
+            : snapshot.getCdhClusterStatus().entrySet().stream()
+                .filter(cluster -> cluster.getValue() != SourceStatus.COMPLETE)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        parameters.addValue("incompleteClusters", incompleteClusters);
+        long removed = 0;
+        for (ArtifactTable table : ArtifactTable.values()) {
+            if (snapshot.getSourceStatus() != null
+                && snapshot.getSourceStatus().getOrDefault(table.source, SourceStatus.COMPLETE) != SourceStatus.COMPLETE) {
+                continue;
+            }
+            String query = String.format(REMOVED_ARTIFACTS_QUERY, table.artifacts, table.memberships, table.sameKey);
+            if (table == ArtifactTable.CDH_SERVICE && !incompleteClusters.isEmpty()) {
+                query += INCOMPLETE_CLUSTERS_CONDITION;
+            }
+            final Long count = jdbcTemplate.queryForObject(query, parameters, Long.class);
+            removed += count == null ? 0 : count;
+        }
+        return removed;
+    }
+
+    private static String truncate(String value, int length) {
+        return value == null || value.length() <= length ? value : value.substring(0, length);
+    }
+
+    private <T extends SnapshotArtifact> ListMultimap<String, Long> previousArtifacts(PlatformSnapshot header,
+                                                                                     List<T> batch,
+                                                                                     ArtifactTable table) {
+        final ListMultimap<String, Long> previous = ArrayListMultimap.create();
+        if (batch.isEmpty()) {
+            return previous;
+        }
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("createdAt", header.getCreatedAt())
+            .addValue("hashes", batch.stream().map(SnapshotArtifact::computeContentHash).collect(Collectors.toSet()));
+        jdbcTemplate.queryForList(String.format(PREVIOUS_ARTIFACTS_QUERY, table.artifacts, table.memberships), parameters)
+            .forEach(row -> previous.put((String) row.get("CONTENT_HASH"), ((Number) row.get("ID")).longValue()));
+        return previous;
+    }
+}
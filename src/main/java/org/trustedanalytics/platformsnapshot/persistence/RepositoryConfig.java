@@ -18,15 +18,21 @@ package org.trustedanalytics.platformsnapshot.persistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.orm.jpa.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
+import java.util.Arrays;
+
 import javax.sql.DataSource;
 
 @Configuration
@@ -41,9 +47,29 @@ public class RepositoryConfig {
     @Autowired
     Environment env;
 
+    /**
+     * Pool of connections for repositories and Flyway, configured by the spring.datasource.*
+     * properties of the Tomcat JDBC pool, e.g. maxActive or suspectTimeout.
+     */
     @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
     public DataSource getPostgresSource() {
-        LOGGER.info("Creating postgresql data source");
+        LOGGER.info("Creating postgresql connection pool");
+        final org.apache.tomcat.jdbc.pool.DataSource dataSource = new org.apache.tomcat.jdbc.pool.DataSource();
+        dataSource.setDriverClassName(env.getProperty("spring.database.driverClassName"));
+        dataSource.setUrl(env.getProperty("spring.datasource.url"));
+        dataSource.setUsername(env.getProperty("spring.datasource.username"));
+        dataSource.setPassword(env.getProperty("spring.datasource.password"));
+        return dataSource;
+    }
+
+    /**
+     * Unpooled connections for the leader lock, which holds its connection for the lifetime of
+     * the replica and would otherwise take a pool slot and be reported as leaked.
+     */
+    @Bean
+    public DataSource leaderLockDataSource() {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
         dataSource.setDriverClassName(env.getProperty("spring.database.driverClassName"));
         dataSource.setUrl(env.getProperty("spring.datasource.url"));
@@ -51,5 +77,14 @@ public class RepositoryConfig {
         dataSource.setPassword(env.getProperty("spring.datasource.password"));
         return dataSource;
     }
-}
 
+    @Bean
+    public PublicMetrics connectionPoolMetrics() {
+        final org.apache.tomcat.jdbc.pool.DataSource pool = (org.apache.tomcat.jdbc.pool.DataSource) getPostgresSource();
+        return () -> Arrays.<Metric<?>>asList(
+            new Metric<Number>("datasource.pool.active", pool.getActive()),
+            new Metric<Number>("datasource.pool.idle", pool.getIdle()),
+            new Metric<Number>("datasource.pool.waiting", pool.getWaitCount()),
+            new Metric<Number>("datasource.pool.max", pool.getMaxActive()));
+    }
+}
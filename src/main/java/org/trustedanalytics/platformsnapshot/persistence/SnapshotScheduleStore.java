@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+import org.trustedanalytics.platformsnapshot.model.SnapshotScheduleState;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Database backed scheduling state, read when a replica starts or becomes the leader.
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRED)
+public class SnapshotScheduleStore {
+
+    private final SnapshotScheduleStateRepository stateRepository;
+    private final PlatformSnapshotRepository platformSnapshotRepository;
+
+    @Autowired
+    public SnapshotScheduleStore(SnapshotScheduleStateRepository stateRepository,
+                                 PlatformSnapshotRepository platformSnapshotRepository) {
+        this.stateRepository = Objects.requireNonNull(stateRepository, "stateRepository");
+        this.platformSnapshotRepository = Objects.requireNonNull(platformSnapshotRepository, "platformSnapshotRepository");
+    }
+
+    public Optional<Date> nextRunAt() {
+        return Optional.ofNullable(stateRepository.findOne(SnapshotScheduleState.SINGLETON_ID))
+            .map(SnapshotScheduleState::getNextRunAt);
+    }
+
+    public void setNextRunAt(Date nextRunAt) {
+        final SnapshotScheduleState state = state();
+        state.setNextRunAt(nextRunAt);
+        stateRepository.save(state);
+    }
+
+    public Optional<Long> intervalMillis() {
+        return Optional.ofNullable(stateRepository.findOne(SnapshotScheduleState.SINGLETON_ID))
+            .map(SnapshotScheduleState::getIntervalMillis);
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        final SnapshotScheduleState state = state();
+        state.setIntervalMillis(intervalMillis);
+        stateRepository.save(state);
+    }
+
+    public Optional<Date> lastCompletedSnapshotAt() {
+        return Optional.ofNullable(platformSnapshotRepository.findTopByCompletedAtNotNullOrderByCreatedAtDesc())
+            .map(PlatformSnapshot::getCreatedAt);
+    }
+
+    /**
+     * Records the start of a catch-up run unless another one started less than
+     * debounceMillis ago, e.g. before a restart loop.
+     */
+    public boolean tryStartCatchUp(Date now, long debounceMillis) {
+        final SnapshotScheduleState state = state();
+        if (state.getLastCatchUpAt() != null && now.getTime() - state.getLastCatchUpAt().getTime() < debounceMillis) {
+            return false;
+        }
+        state.setLastCatchUpAt(now);
+        stateRepository.save(state);
+        return true;
+    }
+
+    private SnapshotScheduleState state() {
+        return Optional.ofNullable(stateRepository.findOne(SnapshotScheduleState.SINGLETON_ID))
+            .orElseGet(SnapshotScheduleState::new);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.trustedanalytics.platformsnapshot.model.SnapshotJob;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot triggers received by replicas which are not the leader, waiting to be
+ * picked up by the leader, and the status of every job, so that any replica can
+ * report the progress of a job run by the leader.
+ */
+@Repository
+public class SnapshotTriggerQueue {
+
+    private static final long STATUS_RETENTION = TimeUnit.DAYS.toMillis(1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SnapshotTriggerQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = Objects.requireNonNull(jdbcTemplate, "jdbcTemplate");
+    }
+
+    public void forward(String jobId) {
+        jdbcTemplate.update("INSERT INTO SNAPSHOT_TRIGGER (JOB_ID, REQUESTED_AT) VALUES (?, ?)", jobId, new Date());
+        jdbcTemplate.update("INSERT INTO SNAPSHOT_JOB_STATUS (JOB_ID, PHASE, UPDATED_AT) VALUES (?, ?, ?)",
+            jobId, SnapshotJob.Phase.FORWARDED.name(), new Date());
+    }
+
+    /**
+     * Removes all waiting triggers and returns their job ids.
+     */
+    public List<String> drain() {
+        return jdbcTemplate.queryForList("DELETE FROM SNAPSHOT_TRIGGER RETURNING JOB_ID", String.class);
+    }
+
+    /**
+     * Stores the phase and snapshot of the job under each of the given job ids.
+     */
+    public void updateStatus(Collection<String> jobIds, SnapshotJob.Phase phase, Long snapshotId) {
+        final Date now = new Date();
+        for (String jobId : jobIds) {
+            final int updated = jdbcTemplate.update(
+                "UPDATE SNAPSHOT_JOB_STATUS SET PHASE = ?, SNAPSHOT_ID = ?, UPDATED_AT = ? WHERE JOB_ID = ?",
+                phase.name(), snapshotId, now, jobId);
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO SNAPSHOT_JOB_STATUS (JOB_ID, PHASE, SNAPSHOT_ID, UPDATED_AT) VALUES (?, ?, ?, ?)",
+                    jobId, phase.name(), snapshotId, now);
+            }
+        }
+    }
+
+    public Optional<SnapshotJob> findStatus(String jobId) {
+        return jdbcTemplate.query("SELECT PHASE, SNAPSHOT_ID, UPDATED_AT FROM SNAPSHOT_JOB_STATUS WHERE JOB_ID = ?",
+            (rs, row) -> {
+                final long snapshotId = rs.getLong("SNAPSHOT_ID");
+                return SnapshotJob.stored(jobId, SnapshotJob.Phase.valueOf(rs.getString("PHASE")),
+                    rs.wasNull() ? null : snapshotId, rs.getTimestamp("UPDATED_AT"));
+            }, jobId).stream().findFirst();
+    }
+
+    /**
+     * Removes statuses of jobs which have not changed for a day.
+     */
+    public void expireStatuses() {
+        jdbcTemplate.update("DELETE FROM SNAPSHOT_JOB_STATUS WHERE UPDATED_AT < ?",
+            new Date(System.currentTimeMillis() - STATUS_RETENTION));
+    }
+}
@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshotDiff;
+import org.trustedanalytics.platformsnapshot.model.SnapshotJob;
 import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotRepository;
 import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotTransactions;
 import org.trustedanalytics.platformsnapshot.service.PlatformSnapshotDiffService;
@@ -92,7 +93,10 @@ public class PlatformSnapshotController {
     )
     @RequestMapping(value = "/rest/v1/snapshots/{id}", method = GET, produces = APPLICATION_JSON_VALUE)
     public PlatformSnapshot getPlatformSnapshot(@PathVariable("id") Long id) {
-        return platformSnapshotRepository.findOne(id);
+        // snapshots which are still being collected are not exposed
+        return Optional.ofNullable(platformSnapshotRepository.findOne(id))
+            .filter(snapshot -> snapshot.getCompletedAt() != null)
+            .orElse(null);
     }
 
     @ApiOperation(
@@ -100,11 +104,19 @@ public class PlatformSnapshotController {
         notes = "Privilege level: Consumer of this endpoint must be an admin."
     )
     @RequestMapping(value = "/rest/v1/snapshots/trigger", method = GET, produces = APPLICATION_JSON_VALUE)
-    public void triggerPlatformSnapshot()
+    public SnapshotJob triggerPlatformSnapshot()
     {
         LOGGER.info("Triggering snapshot");
-        platformSnapshotScheduler.trigger();
+        return platformSnapshotScheduler.trigger();
+    }
 
+    @ApiOperation(
+        value = "Get status of platform snapshot generation",
+        notes = "Privilege level: Consumer of this endpoint must be an admin."
+    )
+    @RequestMapping(value = "/rest/v1/snapshots/jobs/{jobId}", method = GET, produces = APPLICATION_JSON_VALUE)
+    public SnapshotJob getSnapshotJob(@PathVariable("jobId") String jobId) {
+        return platformSnapshotScheduler.findJob(jobId).orElse(null);
     }
 
     @ApiOperation(
@@ -15,26 +15,60 @@
  */
 package org.trustedanalytics.platformsnapshot.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
-import org.jose4j.jwt.consumer.JwtContext;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Lets only tokens with the admin scope through. Decisions are cached by the SHA-256 of the
+ * token until the token expires, so dashboards polling with the same token skip parsing it.
+ */
 public class AdminInterceptor extends HandlerInterceptorAdapter {
 
     private static final String ADMIN_SCOPE = "tap.admin";
+    private static final int MAX_CACHED_TOKENS = 1000;
+    private static final long MAX_CACHED_MINUTES = 10;
+
+    // signatures are verified by the resource server before the interceptor runs
+    private static final JwtConsumer JWT_CONSUMER = new JwtConsumerBuilder()
+            .setSkipAllValidators()
+            .setDisableRequireSignature()
+            .setSkipSignatureVerification()
+            .build();
 
     private final OAuth2TokenSupplier tokenSupplier;
+    private final JwtConsumer jwtConsumer;
+    private final LongSupplier clock;
+    private final Cache<String, Decision> decisions = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfterWrite(MAX_CACHED_MINUTES, TimeUnit.MINUTES)
+            .build();
 
     public AdminInterceptor(OAuth2TokenSupplier supplier) {
+        this(supplier, JWT_CONSUMER, System::currentTimeMillis);
+    }
+
+    AdminInterceptor(OAuth2TokenSupplier supplier, JwtConsumer jwtConsumer, LongSupplier clock) {
         this.tokenSupplier = Objects.requireNonNull(supplier, "OAuth2TokenSupplier");
+        this.jwtConsumer = Objects.requireNonNull(jwtConsumer, "jwtConsumer");
+        this.clock = Objects.requireNonNull(clock, "clock");
     }
 
     @Override
@@ -42,19 +76,49 @@ public class AdminInterceptor extends HandlerInterceptorAdapter {
         return checkAdmin();
     }
 
-    private boolean checkAdmin() throws InvalidJwtException {
-        final JwtConsumer jwtConsumer = new JwtConsumerBuilder()
-                .setSkipAllValidators()
-                .setDisableRequireSignature()
-                .setSkipSignatureVerification()
-                .build();
+    private boolean checkAdmin() throws InvalidJwtException, MalformedClaimException {
+        final String token = tokenSupplier.get();
+        final String digest = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+        final long now = clock.getAsLong();
+
+        final Decision cached = decisions.getIfPresent(digest);
+        if (cached != null && cached.validUntil > now) {
+            return cached.admin;
+        }
+
+        final JwtClaims claims = jwtConsumer.processToClaims(token);
+        final Decision decision = new Decision(hasAdminScope(claims), validUntil(claims));
+        if (decision.validUntil > now) {
+            decisions.put(digest, decision);
+        } else {
+            decisions.invalidate(digest);
+        }
+        return decision.admin;
+    }
+
+    /**
+     * UAA sends the scopes as a list, other issuers as one space separated string.
+     */
+    private static boolean hasAdminScope(JwtClaims claims) {
+        final Object scope = claims == null ? null : claims.getClaimValue("scope");
+        if (scope instanceof Collection) {
+            return ((Collection<?>) scope).stream().anyMatch(ADMIN_SCOPE::equals);
+        }
+        return scope instanceof String && Arrays.asList(((String) scope).split(" ")).contains(ADMIN_SCOPE);
+    }
+
+    private static long validUntil(JwtClaims claims) throws MalformedClaimException {
+        final NumericDate expiration = claims == null ? null : claims.getExpirationTime();
+        return expiration == null ? Long.MAX_VALUE : expiration.getValueInMillis();
+    }
 
-        final JwtContext context = jwtConsumer.process(tokenSupplier.get());
+    private static final class Decision {
+        private final boolean admin;
+        private final long validUntil;
 
-        return Optional.ofNullable(context.getJwtClaims())
-                .map(claim -> claim.getClaimsMap())
-                .map(claimsMap -> claimsMap.get("scope"))
-                .filter(scopes -> scopes.toString().contains(ADMIN_SCOPE))
-                .isPresent();
+        private Decision(boolean admin, long validUntil) {
+            this.admin = admin;
+            this.validUntil = validUntil;
+        }
     }
 }
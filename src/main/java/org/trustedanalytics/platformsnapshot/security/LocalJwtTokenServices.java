@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.security;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Authenticates requests by verifying the signature and expiration of their JWT against
+ * signing keys held in memory, instead of asking UAA about every token.
+ */
+public class LocalJwtTokenServices implements ResourceServerTokenServices {
+
+    private static final int ALLOWED_CLOCK_SKEW_SECONDS = 30;
+
+    private final JwtConsumer jwtConsumer;
+    private final DefaultAccessTokenConverter converter = new DefaultAccessTokenConverter();
+
+    public LocalJwtTokenServices(VerificationKeyResolver signingKeys) {
+        this.jwtConsumer = new JwtConsumerBuilder()
+            .setVerificationKeyResolver(Objects.requireNonNull(signingKeys, "signingKeys"))
+            .setRequireExpirationTime()
+            .setAllowedClockSkewInSeconds(ALLOWED_CLOCK_SKEW_SECONDS)
+            // audiences are matched with the resource id by Spring Security
+            .setSkipDefaultAudienceValidation()
+            .build();
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException {
+        return converter.extractAuthentication(claims(accessToken).getClaimsMap());
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        final JwtClaims claims = claims(accessToken);
+        final DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(accessToken);
+        try {
+            final NumericDate expiration = claims.getExpirationTime();
+            token.setExpiration(new Date(expiration.getValueInMillis()));
+        } catch (MalformedClaimException e) {
+            throw new InvalidTokenException("Malformed expiration of the access token", e);
+        }
+        token.setScope(scopes(claims.getClaimValue("scope")));
+        return token;
+    }
+
+    private JwtClaims claims(String accessToken) {
+        try {
+            return jwtConsumer.processToClaims(accessToken);
+        } catch (InvalidJwtException e) {
+            throw new InvalidTokenException("Invalid access token", e);
+        }
+    }
+
+    private static Set<String> scopes(Object scope) {
+        final Set<String> scopes = new LinkedHashSet<>();
+        if (scope instanceof Collection) {
+            ((Collection<?>) scope).forEach(value -> scopes.add(String.valueOf(value)));
+        } else if (scope instanceof String) {
+            for (String value : ((String) scope).split(" ")) {
+                scopes.add(value);
+            }
+        }
+        return scopes;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.security;
+
+import org.jose4j.http.Get;
+import org.jose4j.http.SimpleGet;
+import org.jose4j.http.SimpleResponse;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.VerificationJwkSelector;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.Key;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token signing keys of UAA, fetched from its token key endpoint and kept in memory.
+ * Keys are resolved from memory only, so verifying a token never waits for UAA. A token
+ * signed with an unknown key fails, but triggers a refresh in the background, at most once
+ * a minute, so that tokens signed with a rotated key are accepted shortly after. Besides that
+ * {@link #refresh()} is expected to be called periodically.
+ *
+ * Both the key set of /token_keys and the single key of /token_key are understood.
+ */
+public class SigningKeys implements VerificationKeyResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SigningKeys.class);
+    private static final long UNKNOWN_KEY_REFRESH_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final String keyUri;
+    private final SimpleGet http;
+    private final VerificationJwkSelector selector = new VerificationJwkSelector();
+    private final AtomicReference<List<JsonWebKey>> keys = new AtomicReference<>(Collections.emptyList());
+    private final Executor refresher;
+    private final AtomicLong lastUnknownKeyRefresh = new AtomicLong(System.nanoTime() - UNKNOWN_KEY_REFRESH_INTERVAL);
+
+    public SigningKeys(String keyUri, Executor refresher) {
+        this(keyUri, new Get(), refresher);
+    }
+
+    SigningKeys(String keyUri, SimpleGet http, Executor refresher) {
+        this.keyUri = Objects.requireNonNull(keyUri, "keyUri");
+        this.http = Objects.requireNonNull(http, "http");
+        this.refresher = Objects.requireNonNull(refresher, "refresher");
+    }
+
+    /**
+     * Replaces the keys with the ones currently published. The previous keys stay in use
+     * when the endpoint cannot be read.
+     */
+    public void refresh() {
+        try {
+            final SimpleResponse response = http.get(keyUri);
+            if (response.getStatusCode() != 200) {
+                LOGGER.warn("Unable to fetch token signing keys from {}: {}", keyUri, response.getStatusCode());
+                return;
+            }
+            final List<JsonWebKey> fetched = parse(response.getBody());
+            keys.set(fetched);
+            LOGGER.debug("Fetched {} token signing keys from {}", fetched.size(), keyUri);
+        } catch (IOException | JoseException e) {
+            LOGGER.warn("Unable to fetch token signing keys from {}", keyUri, e);
+        }
+    }
+
+    @Override
+    public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException {
+        try {
+            final JsonWebKey key = selector.select(jws, keys.get());
+            if (key == null) {
+                refreshInBackground();
+                throw new UnresolvableKeyException("No token signing key matches key id " + jws.getKeyIdHeaderValue());
+            }
+            return key.getKey();
+        } catch (JoseException e) {
+            throw new UnresolvableKeyException("Unable to select a token signing key", e);
+        }
+    }
+
+    private void refreshInBackground() {
+        final long now = System.nanoTime();
+        final long last = lastUnknownKeyRefresh.get();
+        if (now - last < UNKNOWN_KEY_REFRESH_INTERVAL || !lastUnknownKeyRefresh.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            refresher.execute(this::refresh);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Unable to refresh token signing keys of {}", keyUri, e);
+        }
+    }
+
+    private static List<JsonWebKey> parse(String body) throws JoseException {
+        if (body.contains("\"keys\"")) {
+            return new JsonWebKeySet(body).getJsonWebKeys();
+        }
+        return Collections.singletonList(JsonWebKey.Factory.newJwk(body));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Connection pool shared by the TAP, Cloudera Manager and UAA clients.
+ */
+@Configuration
+@ConfigurationProperties("http.client")
+@Getter
+@Setter
+public class HttpConfiguration {
+
+    private int maxConnections = 50;
+
+    private int maxConnectionsPerRoute = 10;
+
+    /**
+     * How long an idle connection is kept open when the server does not send a Keep-Alive timeout.
+     */
+    private long keepAliveSeconds = 30;
+
+    /**
+     * Pooled connections idle for longer are checked before they are leased again.
+     */
+    private int validateAfterInactivityMillis = 2000;
+
+    /**
+     * When enabled GET responses with an ETag or Last-Modified header are revalidated with
+     * conditional requests and unchanged bodies are not decoded again.
+     */
+    private boolean cacheEnabled = true;
+
+    private int cacheMaxEntries = 100;
+
+    /**
+     * Larger responses, e.g. application lists of big platforms, are not cached.
+     */
+    private int cacheMaxBodyKilobytes = 1024;
+
+    /**
+     * When enabled the requests in flight to each host are limited by a limit which grows
+     * while responses stay fast and shrinks when they slow down or get rejected.
+     */
+    private boolean adaptiveLimit = true;
+
+    private int limitInitial = 4;
+
+    private int limitMin = 1;
+
+    /**
+     * Upper bound of the adaptive limit, there is no use in raising it above maxConnectionsPerRoute.
+     */
+    private int limitMax = 10;
+
+    /**
+     * Multiple of the fastest recent latency up to which a response does not count as slow.
+     */
+    private double limitLatencyTolerance = 2.0;
+
+    /**
+     * Factor applied to the limit after a slow or rejected response.
+     */
+    private double limitBackoffRatio = 0.9;
+
+    /**
+     * How long a request waits for the limit before it fails.
+     */
+    private long limitMaxWaitSeconds = 60;
+}
@@ -22,15 +22,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.trustedanalytics.platformsnapshot.model.CdhServiceArtifact;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshotDiff;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
 import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotRepository;
 import org.trustedanalytics.platformsnapshot.service.diff.DiffProcessor;
 import org.trustedanalytics.platformsnapshot.service.diff.FlattenDiffProcessor;
 import org.trustedanalytics.platformsnapshot.service.diff.PartitionedDiffProcessor;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -56,16 +63,103 @@ public class PlatformSnapshotDiffService {
     }
 
     private PlatformSnapshotDiff process(long idBefore, long idAfter, DiffProcessor processor) {
-        final PlatformSnapshot before = findSnapshot(idBefore);
-        final PlatformSnapshot after = findSnapshot(idAfter);
+        final PlatformSnapshot storedBefore = findSnapshot(idBefore);
+        final PlatformSnapshot storedAfter = findSnapshot(idAfter);
+        final PlatformSnapshot before = comparable(storedBefore, storedAfter);
+        final PlatformSnapshot after = comparable(storedAfter, storedBefore);
         final DiffNode root = ObjectDifferBuilder.buildDefault().compare(after, before);
 
         LOGGER.info("Comparing snapshots {} {}", before.getCreatedAt(), after.getCreatedAt());
         return processor.process(root, before, after);
     }
 
+    /**
+     * Copy of the snapshot without categories which are incomplete in either of the compared
+     * snapshots, so that artifacts missing because of a failed source are not reported as removed.
+     */
+    private PlatformSnapshot comparable(PlatformSnapshot snapshot, PlatformSnapshot other) {
+        return PlatformSnapshot.builder()
+            .id(snapshot.getId())
+            .createdAt(snapshot.getCreatedAt())
+            .platformVersion(isComplete(SnapshotSource.TAP_INFO, snapshot, other) ? snapshot.getPlatformVersion() : null)
+            .k8sVersion(isComplete(SnapshotSource.TAP_INFO, snapshot, other) ? snapshot.getK8sVersion() : null)
+            .cdhVersion(isComplete(SnapshotSource.CDH_CLUSTERS, snapshot, other) ? snapshot.getCdhVersion() : null)
+            .applications(isComplete(SnapshotSource.TAP_APPLICATIONS, snapshot, other)
+                ? snapshot.getApplications() : Collections.emptyList())
+            .tapServices(isComplete(SnapshotSource.TAP_SERVICES, snapshot, other)
+                ? snapshot.getTapServices() : Collections.emptyList())
+            .cdhServices(isComplete(SnapshotSource.CDH_SERVICES, snapshot, other)
+                ? ofCompleteClusters(withClusterNames(snapshot.getCdhServices(), other.getCdhServices()), snapshot, other)
+                : Collections.emptyList())
+            .build();
+    }
+
+    /**
+     * Services of the clusters which are complete in both snapshots, a cluster which failed in
+     * one of them does not hide the services of the other clusters.
+     */
+    private Collection<CdhServiceArtifact> ofCompleteClusters(Collection<CdhServiceArtifact> services,
+                                                              PlatformSnapshot snapshot, PlatformSnapshot other) {
+        if (services == null) {
+            return null;
+        }
+        return services.stream()
+            .filter(service -> {
+                final boolean complete = snapshot.isCdhClusterComplete(service.getClusterName())
+                    && other.isCdhClusterComplete(service.getClusterName());
+                if (!complete) {
+                    LOGGER.debug("Skipping service {} of CDH cluster {}, it is not complete", service.getName(),
+                        service.getClusterName());
+                }
+                return complete;
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * CDH services stored before the cluster name was recorded come from the only cluster
+     * collected back then. They take the cluster of the service with the same name in the
+     * other snapshot, so the first diff across the upgrade does not report them as changed.
+     */
+    private Collection<CdhServiceArtifact> withClusterNames(Collection<CdhServiceArtifact> services,
+                                                            Collection<CdhServiceArtifact> other) {
+        if (services == null || other == null || services.stream().allMatch(service -> service.getClusterName() != null)) {
+            return services;
+        }
+        final Map<String, Set<String>> clusters = other.stream()
+            .filter(service -> service.getClusterName() != null)
+            .collect(Collectors.groupingBy(CdhServiceArtifact::getName,
+                Collectors.mapping(CdhServiceArtifact::getClusterName, Collectors.toSet())));
+        return services.stream()
+            .map(service -> {
+                final Set<String> names = clusters.get(service.getName());
+                if (service.getClusterName() != null || names == null || names.size() != 1) {
+                    return service;
+                }
+                final CdhServiceArtifact named = new CdhServiceArtifact();
+                named.setId(service.getId());
+                named.setClusterName(names.iterator().next());
+                named.setName(service.getName());
+                named.setType(service.getType());
+                named.setServiceState(service.getServiceState());
+                named.setHealthSummary(service.getHealthSummary());
+                named.setEntityStatus(service.getEntityStatus());
+                return named;
+            })
+            .collect(Collectors.toList());
+    }
+
+    private boolean isComplete(SnapshotSource source, PlatformSnapshot snapshot, PlatformSnapshot other) {
+        final boolean complete = snapshot.isComplete(source) && other.isComplete(source);
+        if (!complete) {
+            LOGGER.info("Skipping {} of snapshot {}, it is not complete", source, snapshot.getId());
+        }
+        return complete;
+    }
+
     private PlatformSnapshot findSnapshot(long id) {
         return Optional.ofNullable(repository.findOne(id))
+                .filter(snapshot -> snapshot.getCompletedAt() != null)
                 .orElseThrow(() -> new IllegalArgumentException(String.format("Snapshot with id %s does not exist", id)));
     }
 }
\ No newline at end of file
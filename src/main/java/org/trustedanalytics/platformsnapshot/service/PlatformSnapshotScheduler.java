@@ -18,160 +18,557 @@ package org.trustedanalytics.platformsnapshot.service;
 import org.springframework.context.annotation.Profile;
 import org.trustedanalytics.platformsnapshot.client.TapOperations;
 import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhRxOperations;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhCluster;
-import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhService;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
 import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards.Path;
 import org.trustedanalytics.platformsnapshot.model.CdhServiceArtifact;
 import org.trustedanalytics.platformsnapshot.model.TapApplicationArtifact;
 import org.trustedanalytics.platformsnapshot.model.TapServiceArtifact;
 import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
-import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotRepository;
+import org.trustedanalytics.platformsnapshot.model.SnapshotJob;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
+import org.trustedanalytics.platformsnapshot.model.SourceStatus;
+import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotWriter;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotScheduleStore;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotTriggerQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
 
 @Service
 @Profile("cloud")
 public class PlatformSnapshotScheduler {
     private static final Logger LOG = LoggerFactory.getLogger(PlatformSnapshotScheduler.class);
+    private static final int JOB_HISTORY_SIZE = 100;
 
     private final TapOperations tap;
 
-    private final PlatformSnapshotRepository repository;
+    private final PlatformSnapshotWriter writer;
     private final ScheduledExecutorService executor;
-    private final CdhOperations cdhOperations;
+    // leadership and forwarded triggers are checked on their own thread, so a running collection does not hold them up
+    private final ScheduledExecutorService heartbeatExecutor;
+    private final Scheduler io;
+    private final int batchSize;
+    private final Map<SnapshotSource, Long> timeouts = new EnumMap<>(SnapshotSource.class);
+    private final CdhRxOperations cdhOperations;
+    private final int cdhConcurrency;
+    private final LeaderElection leaderElection;
+    private final SnapshotTriggerQueue triggerQueue;
+    private final SnapshotScheduleStore scheduleStore;
+    private final int heartbeatSeconds;
+    private final long catchUpDebounce;
+    private final SnapshotSchedulePolicy schedulePolicy;
+    private final AtomicReference<SnapshotJob> activeJob = new AtomicReference<>();
+    private final Cache<String, SnapshotJob> jobs = CacheBuilder.newBuilder().maximumSize(JOB_HISTORY_SIZE).build();
+    // only accessed on the scheduler thread
+    private ScheduledFuture<?> nextRun;
+    // only accessed on the heartbeat thread
+    private boolean leader;
+
+    public PlatformSnapshotScheduler(TapOperations tap,
+                                     PlatformSnapshotWriter writer,
+                                     CdhOperations cdhOperations,
+                                     LeaderElection leaderElection,
+                                     SnapshotTriggerQueue triggerQueue,
+                                     SnapshotScheduleStore scheduleStore,
+                                     UpstreamGuards guards,
+                                     SnapshotConfiguration configuration) {
+        this(tap, writer, cdhOperations, leaderElection, triggerQueue, scheduleStore, guards, configuration,
+            collectionExecutor(configuration));
+    }
 
     @Autowired
     public PlatformSnapshotScheduler(TapOperations tap,
-                                     PlatformSnapshotRepository repository,
-                                     CdhOperations cdhOperations) {
-        this.tap = Objects.requireNonNull(tap, TapOperations.class.getSimpleName());
-        this.repository = Objects.requireNonNull(repository, PlatformSnapshotRepository.class.getSimpleName());
+                                     PlatformSnapshotWriter writer,
+                                     CdhOperations cdhOperations,
+                                     LeaderElection leaderElection,
+                                     SnapshotTriggerQueue triggerQueue,
+                                     SnapshotScheduleStore scheduleStore,
+                                     UpstreamGuards guards,
+                                     SnapshotConfiguration configuration,
+                                     ExecutorService collectionExecutor) {
+        this.tap = guards.tap(Objects.requireNonNull(tap, TapOperations.class.getSimpleName()), Path.SNAPSHOT);
+        this.writer = Objects.requireNonNull(writer, PlatformSnapshotWriter.class.getSimpleName());
         this.executor = new ScheduledThreadPoolExecutor(1);
-        this.cdhOperations = cdhOperations;
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("snapshot-heartbeat-%d").setDaemon(true).build());
+        this.cdhOperations = guards.cdh(CdhRxOperations.of(cdhOperations), Path.SNAPSHOT);
+        this.cdhConcurrency = guards.concurrency(Path.SNAPSHOT);
+        this.leaderElection = Objects.requireNonNull(leaderElection, LeaderElection.class.getSimpleName());
+        this.triggerQueue = Objects.requireNonNull(triggerQueue, SnapshotTriggerQueue.class.getSimpleName());
+        this.scheduleStore = Objects.requireNonNull(scheduleStore, SnapshotScheduleStore.class.getSimpleName());
+        this.heartbeatSeconds = configuration.getLeaderHeartbeatSeconds();
+        this.catchUpDebounce = TimeUnit.MINUTES.toMillis(configuration.getCatchUpDebounceMinutes());
+        this.schedulePolicy = new SnapshotSchedulePolicy(configuration);
+        this.io = configuration.isParallelCollection()
+            ? Schedulers.from(Objects.requireNonNull(collectionExecutor, "collectionExecutor"))
+            : Schedulers.immediate();
+        this.batchSize = configuration.getPersistenceBatchSize();
+        for (SnapshotSource source : SnapshotSource.values()) {
+            timeouts.put(source, configuration.timeoutSeconds(source));
+        }
+    }
+
+    /**
+     * Bounded pool issuing the blocking TAP and CDH calls of a collection, shared with
+     * the TAP client for fetching pages.
+     */
+    public static ExecutorService collectionExecutor(SnapshotConfiguration configuration) {
+        return Executors.newFixedThreadPool(configuration.getCollectionThreads(),
+            new ThreadFactoryBuilder().setNameFormat("snapshot-io-%d").setDaemon(true).build());
     }
 
     @PostConstruct
     private void schedule() {
         LOG.info("Scheduling platform snapshot: {}", LocalDateTime.now());
-        executor.scheduleAtFixedRate(snapshotTask(), 1, 24, TimeUnit.HOURS);
+        executor.execute(this::scheduleFirst);
+        heartbeatExecutor.scheduleWithFixedDelay(this::checkLeadership, 0, heartbeatSeconds, TimeUnit.SECONDS);
+        heartbeatExecutor.scheduleWithFixedDelay(this::consumeForwardedTriggers, heartbeatSeconds, heartbeatSeconds,
+            TimeUnit.SECONDS);
     }
 
-    public void trigger() {
+    /**
+     * Keeps the cadence of the previous leader when its next run is still ahead,
+     * otherwise starts a new cycle.
+     */
+    private void scheduleFirst() {
+        restoreInterval();
+        final Date now = new Date();
+        final long delay = storedNextRunAt()
+            .filter(nextRunAt -> nextRunAt.after(now))
+            .map(nextRunAt -> nextRunAt.getTime() - now.getTime())
+            .orElseGet(() -> schedulePolicy.firstDelayMillis(now));
+        LOG.info("First platform snapshot scheduled in {} minutes", TimeUnit.MILLISECONDS.toMinutes(delay));
+        nextRun = executor.schedule(this::scheduledSnapshot, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public SnapshotJob trigger() {
         LOG.info("Triggering platform snapshot: {}", LocalDateTime.now());
-        executor.submit(snapshotTask());
+        return leaderElection.isLeader() ? submit() : forward();
+    }
+
+    /**
+     * Jobs run by this replica are reported from memory, jobs forwarded to or run by
+     * another replica from the status stored by the leader.
+     */
+    public Optional<SnapshotJob> findJob(String id) {
+        final SnapshotJob job = jobs.getIfPresent(id);
+        if (job != null && job.getPhase() != SnapshotJob.Phase.FORWARDED) {
+            return Optional.of(job);
+        }
+        try {
+            final Optional<SnapshotJob> stored = triggerQueue.findStatus(id);
+            if (stored.isPresent()) {
+                return stored;
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Unable to read the status of platform snapshot {}", id, e);
+        }
+        return Optional.ofNullable(job);
+    }
+
+    /**
+     * Queues a new snapshot job unless one is already queued or running, in which
+     * case the caller is merged into the existing job.
+     */
+    private SnapshotJob submit() {
+        while (true) {
+            final SnapshotJob current = activeJob.get();
+            if (current != null && !current.isFinished()) {
+                LOG.info("Platform snapshot {} is already {}", current.getId(), current.getPhase());
+                return current;
+            }
+            final SnapshotJob job = new SnapshotJob();
+            if (activeJob.compareAndSet(current, job)) {
+                jobs.put(job.getId(), job);
+                publish(job);
+                executor.submit(snapshotTask(job));
+                return job;
+            }
+        }
+    }
+
+    private void scheduledSnapshot() {
+        if (leaderElection.isLeader()) {
+            submit();
+        } else {
+            LOG.info("Skipping scheduled platform snapshot, another replica is the leader");
+        }
+        // queued behind the snapshot on the single scheduler thread, so the delay reflects its churn
+        executor.execute(this::scheduleNext);
+    }
+
+    private void scheduleNext() {
+        final long delay = schedulePolicy.nextDelayMillis(new Date());
+        LOG.info("Next platform snapshot scheduled in {} minutes", TimeUnit.MILLISECONDS.toMinutes(delay));
+        nextRun = executor.schedule(this::scheduledSnapshot, delay, TimeUnit.MILLISECONDS);
+        if (leaderElection.isLeader()) {
+            try {
+                scheduleStore.setNextRunAt(new Date(System.currentTimeMillis() + delay));
+            } catch (RuntimeException e) {
+                LOG.error("Unable to store the next platform snapshot time", e);
+            }
+        }
+    }
+
+    /**
+     * Runs a catch-up snapshot when this replica has just become the leader. Called on
+     * the heartbeat thread.
+     */
+    void checkLeadership() {
+        final boolean wasLeader = leader;
+        leader = leaderElection.isLeader();
+        if (leader && !wasLeader) {
+            restoreInterval();
+            catchUp(new Date());
+        }
+    }
+
+    private void restoreInterval() {
+        if (!schedulePolicy.isAdaptive()) {
+            return;
+        }
+        try {
+            scheduleStore.intervalMillis().ifPresent(schedulePolicy::restoreInterval);
+        } catch (RuntimeException e) {
+            LOG.error("Unable to read the platform snapshot interval", e);
+        }
+    }
+
+    private void storeInterval() {
+        if (!schedulePolicy.isAdaptive()) {
+            return;
+        }
+        try {
+            scheduleStore.setIntervalMillis(schedulePolicy.getIntervalMillis());
+        } catch (RuntimeException e) {
+            LOG.error("Unable to store the platform snapshot interval", e);
+        }
+    }
+
+    /**
+     * Takes the snapshot missed while no replica was running, or while the leader was
+     * collecting and crashed, and restarts the cycle from it. At most one catch-up runs
+     * per debounce period, so a crash looping deployment does not run a snapshot on
+     * every start.
+     */
+    private void catchUp(Date now) {
+        try {
+            final Optional<Date> due = Optional.ofNullable(storedNextRunAt()
+                .orElseGet(() -> scheduleStore.lastCompletedSnapshotAt().map(schedulePolicy::nextRunAfter).orElse(null)));
+            if (due.isPresent() && due.get().after(now)) {
+                resume(due.get(), now);
+                return;
+            }
+            if (!scheduleStore.tryStartCatchUp(now, catchUpDebounce)) {
+                LOG.info("Skipping platform snapshot catch-up, the previous one ran less than {} minutes ago",
+                    TimeUnit.MILLISECONDS.toMinutes(catchUpDebounce));
+                return;
+            }
+            LOG.info("Catching up platform snapshot due at {}", due.orElse(null));
+            executor.execute(() -> {
+                if (nextRun != null) {
+                    nextRun.cancel(false);
+                }
+                scheduledSnapshot();
+            });
+        } catch (RuntimeException e) {
+            LOG.error("Unable to catch up platform snapshot", e);
+        }
+    }
+
+    /**
+     * Replaces the timer computed while this replica was a follower with the next run of
+     * the previous leader, so the stored cadence survives a failover.
+     */
+    private void resume(Date due, Date now) {
+        final long delay = due.getTime() - now.getTime();
+        LOG.info("Resuming platform snapshot schedule of the previous leader, next snapshot in {} minutes",
+            TimeUnit.MILLISECONDS.toMinutes(delay));
+        executor.execute(() -> {
+            if (nextRun != null) {
+                nextRun.cancel(false);
+            }
+            nextRun = executor.schedule(this::scheduledSnapshot, delay, TimeUnit.MILLISECONDS);
+        });
     }
 
-    private Runnable snapshotTask() {
+    private Optional<Date> storedNextRunAt() {
+        try {
+            return scheduleStore.nextRunAt();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to read the next platform snapshot time", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Hands the trigger over to the leader replica through the database.
+     */
+    private SnapshotJob forward() {
+        final SnapshotJob job = new SnapshotJob();
+        triggerQueue.forward(job.getId());
+        job.forwarded();
+        jobs.put(job.getId(), job);
+        LOG.info("Platform snapshot {} forwarded to the leader", job.getId());
+        return job;
+    }
+
+    /**
+     * Merges triggers forwarded by other replicas into the running job, or into a new one
+     * when none is running. The job is available under every forwarded job id.
+     */
+    void consumeForwardedTriggers() {
+        if (!leaderElection.isLeader()) {
+            return;
+        }
+        try {
+            final List<String> forwarded = triggerQueue.drain();
+            if (!forwarded.isEmpty()) {
+                LOG.info("Received {} forwarded platform snapshot triggers", forwarded.size());
+                final SnapshotJob job = submit();
+                job.getMergedIds().addAll(forwarded);
+                forwarded.forEach(id -> jobs.put(id, job));
+                publish(job);
+            }
+            triggerQueue.expireStatuses();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to read forwarded platform snapshot triggers", e);
+        }
+    }
+
+    /**
+     * Stores the phase of the job under its own and every merged id, so that the
+     * replicas which forwarded a trigger can report its progress.
+     */
+    private void publish(SnapshotJob job) {
+        final Set<String> ids = new HashSet<>(job.getMergedIds());
+        ids.add(job.getId());
+        try {
+            triggerQueue.updateStatus(ids, job.getPhase(), job.getSnapshotId());
+        } catch (RuntimeException e) {
+            LOG.error("Unable to store the status of platform snapshot {}", job.getId(), e);
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private Runnable snapshotTask(SnapshotJob job) {
         return () -> {
-            LOG.info("Performing platform snapshot: {}", LocalDateTime.now());
-            final CdhCluster cdhCluster = cdhCluster();
-            LOG.info("Cdh cluster received {}", cdhCluster);
-            // @formatter:off
-            Observable.zip(tapApplications().toList(), tapServices().toList(), cdhServices(cdhCluster.getName()).toList(), tapInfo(),
-                (tapApps, tapServices, cdhServices, tapInfo) ->
-                    new PlatformSnapshot(
-                        new Date(),
-                        tapInfo.getPlatformVersion(),
-                        tapApps,
-                        cdhCluster.getFullVersion(),
-                        tapInfo.getK8sVersion(),
-                        cdhServices,
-                        tapServices))
-            .doOnNext(snapshot -> LOG.info("Persisting platform snapshot: {}", LocalDateTime.now()))
-            .map(repository::save)
-            .subscribe(snapshot -> LOG.info("Platform snapshot completed: {}", LocalDateTime.now()));
-            // @formatter:on
+            LOG.info("Performing platform snapshot {}: {}", job.getId(), LocalDateTime.now());
+            job.collecting();
+            publish(job);
+            PlatformSnapshot header = null;
+            try {
+                header = writer.begin(new Date());
+                final PlatformSnapshot snapshot = collect(job, header).toBlocking().single();
+                job.completed(snapshot.getId());
+                publish(job);
+                schedulePolicy.snapshotCompleted(snapshot);
+                storeInterval();
+                LOG.info("Platform snapshot completed: {}", LocalDateTime.now());
+            } catch (RuntimeException e) {
+                LOG.error("Platform snapshot failed", e);
+                job.failed(e);
+                publish(job);
+                if (header != null) {
+                    discard(header);
+                }
+            }
         };
     }
 
-    CdhCluster cdhCluster() {
-        return Observable.defer(() -> Observable.from(cdhOperations.getCdhClusters().getItems()))
-            .first()
-                .map(cluster -> {
-                    try {
-                        return cluster;
-                    } catch (Exception e) {
-                        LOG.error("Error while fetching CdhCluster {}", e);
-                        throw e;
-                    }
-                })
-            .onErrorResumeNext(Observable.just(new CdhCluster()))
-            .doOnNext(cluster -> LOG.info("CDH cluster: {}", cluster))
-            .toBlocking().single();
+    private void discard(PlatformSnapshot header) {
+        try {
+            writer.discard(header);
+        } catch (RuntimeException e) {
+            LOG.error("Unable to discard platform snapshot {}", header.getId(), e);
+        }
+    }
+
+    /**
+     * Subscribes to all TAP and CDH sources at once on the I/O scheduler and appends
+     * their artifacts to the snapshot in batches as they arrive. The only dependency
+     * between the sources is the CDH services lookup, which needs the cluster names.
+     *
+     * A source which fails or misses its deadline does not fail the snapshot, it is
+     * stored with the artifacts collected so far and marked as incomplete. The services of
+     * a CDH cluster which fails or is not done by the deadline are marked as incomplete on
+     * their own, without affecting the services of the other clusters.
+     */
+    Observable<PlatformSnapshot> collect(SnapshotJob job, PlatformSnapshot header) {
+        final Observable<CdhCluster> cdhClusters = cdhClusters().subscribeOn(io).cache();
+        final Map<String, SourceStatus> clusterStatus = new ConcurrentHashMap<>();
+        // services of the clusters are fetched in parallel, up to the calls the CDH bulkhead lets through
+        final Observable<CdhServiceArtifact> cdhServices = cdhClusters
+            .filter(cluster -> cluster.getName() != null)
+            .flatMap(cluster -> cdhServices(cluster.getName())
+                .subscribeOn(io)
+                .doOnCompleted(() -> clusterStatus.put(cluster.getName(), SourceStatus.COMPLETE))
+                .onErrorResumeNext(e -> {
+                    LOG.error("Services of CDH cluster {} failed", cluster.getName(), e);
+                    clusterStatus.put(cluster.getName(), SourceStatus.FAILED);
+                    return Observable.empty();
+                }), cdhConcurrency);
+
+        // @formatter:off
+        return Observable.zip(
+            store(track(job, SnapshotSource.TAP_APPLICATIONS, tapApplications().subscribeOn(io)),
+                batch -> writer.appendApplications(header, batch)),
+            store(track(job, SnapshotSource.TAP_SERVICES, tapServices().subscribeOn(io)),
+                batch -> writer.appendTapServices(header, batch)),
+            store(track(job, SnapshotSource.CDH_SERVICES, cdhServices),
+                batch -> writer.appendCdhServices(header, batch)),
+            track(job, SnapshotSource.CDH_CLUSTERS, cdhClusters).toList(),
+            track(job, SnapshotSource.TAP_INFO, tapInfo().subscribeOn(io)).lastOrDefault(new TapInfo()),
+            (tapApps, tapServices, cdhServiceArtifacts, clusters, tapInfo) -> {
+                LOG.info("Persisting platform snapshot: {}", LocalDateTime.now());
+                job.persisting();
+                publish(job);
+                header.setPlatformVersion(tapInfo.getPlatformVersion());
+                header.setCdhVersion(CdhClusters.fullVersion(clusters));
+                header.setK8sVersion(tapInfo.getK8sVersion());
+                header.setSourceStatus(job.sourceStatus());
+                header.setCdhClusterStatus(cdhClusterStatus(header.getSourceStatus(), clusters, clusterStatus));
+                return writer.complete(header);
+            });
+        // @formatter:on
+    }
+
+    /**
+     * Status of the services of every listed cluster. Clusters whose services did not finish
+     * before the CDH services deadline are timed out. With the cluster list complete, the
+     * status of the clusters replaces the one of the CDH services source, so a failed cluster
+     * does not make the services of the others incomplete.
+     */
+    private static Map<String, SourceStatus> cdhClusterStatus(Map<SnapshotSource, SourceStatus> sourceStatus,
+                                                              List<CdhCluster> clusters,
+                                                              Map<String, SourceStatus> collected) {
+        final Map<String, SourceStatus> status = new HashMap<>();
+        clusters.stream()
+            .map(CdhCluster::getName)
+            .filter(Objects::nonNull)
+            .forEach(name -> status.put(name, collected.getOrDefault(name, SourceStatus.TIMED_OUT)));
+        if (sourceStatus.get(SnapshotSource.CDH_CLUSTERS) == SourceStatus.COMPLETE) {
+            sourceStatus.put(SnapshotSource.CDH_SERVICES, SourceStatus.COMPLETE);
+        }
+        return status;
+    }
+
+    /**
+     * Writes artifacts in batches of the configured size and emits the number of stored artifacts.
+     */
+    private <T> Observable<Integer> store(Observable<T> artifacts, Action1<List<T>> append) {
+        return artifacts
+            .buffer(batchSize)
+            .doOnNext(append)
+            .reduce(0, (stored, batch) -> stored + batch.size());
+    }
+
+    /**
+     * Records progress of the source in the job. When the source fails or misses its
+     * deadline it is completed with the items emitted so far.
+     */
+    private <T> Observable<T> track(SnapshotJob job, SnapshotSource source, Observable<T> observable) {
+        return deadline(source, observable)
+            .doOnSubscribe(() -> job.sourceStarted(source))
+            .doOnNext(item -> job.sourceProgressed(source))
+            .doOnCompleted(() -> job.sourceCompleted(source))
+            .onErrorResumeNext(e -> {
+                if (e instanceof TimeoutException) {
+                    LOG.warn("Source {} missed its deadline of {}s", source, timeouts.get(source));
+                    job.sourceTimedOut(source);
+                } else {
+                    LOG.error("Source {} failed", source, e);
+                    job.sourceFailed(source);
+                }
+                return Observable.empty();
+            });
+    }
+
+    /**
+     * Fails with {@link TimeoutException} when the source does not complete within its
+     * configured deadline, counted from subscription.
+     */
+    private <T> Observable<T> deadline(SnapshotSource source, Observable<T> observable) {
+        return Observable.defer(() -> {
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeouts.get(source));
+            final Func0<Observable<Long>> remaining = () ->
+                Observable.timer(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return observable.timeout(remaining, item -> remaining.call());
+        });
+    }
+
+    Observable<CdhCluster> cdhClusters() {
+        return cdhOperations.clusters()
+            .flatMapIterable(CdhClusters::getItems)
+            .filter(Objects::nonNull)
+            .doOnNext(cluster -> LOG.info("CDH cluster: {}", cluster));
     }
 
     Observable<TapApplicationArtifact> tapApplications() {
         return Observable.defer(() -> tap.getApplications()
-                .map(app -> {
-                    try {
-                        return new TapApplicationArtifact(app);
-                    } catch (Exception e) {
-                        LOG.error("Error while creating TapApplicationArtifact {}", e);
-                        throw e;
-                    }
-                })
-                .onErrorResumeNext(Observable.just(new TapApplicationArtifact()))
-                .doOnNext(artifact -> LOG.info("Application artifact: {}", artifact)));
-
+            .map(TapApplicationArtifact::new)
+            .doOnNext(artifact -> LOG.info("Application artifact: {}", artifact)));
     }
 
     Observable<CdhServiceArtifact> cdhServices(String clusterName) {
-        return Observable.defer(
-                () -> Observable.from(
-                        cdhOperations.getCdhServices(clusterName).getItems())
-                       .map(cdhArtifact -> {
-                        try {
-                           return new CdhServiceArtifact(cdhArtifact);
-                        } catch (Exception e) {
-                        LOG.error("Error while creating cdh artifact, {}", e);
-                        throw e;
-                    }
-                }))
-                .onErrorResumeNext(ex -> {
-                    LOG.error("Error {}", ex);
-                    return Observable.just(new CdhServiceArtifact(new CdhService())); }
-                )
-                .switchIfEmpty(
-                        Observable.just(new CdhServiceArtifact(new CdhService()))
-
-        );
-
+        return cdhOperations.services(clusterName)
+            .flatMapIterable(CdhServices::getItems)
+            .map(service -> new CdhServiceArtifact(clusterName, service));
     }
 
     Observable<TapServiceArtifact> tapServices() {
         return Observable.defer(() -> tap.getServices()
-            .map(service -> {
-                        try {
-                            return new TapServiceArtifact(service);
-                        } catch (Exception e) {
-                            LOG.error("Error while creating TapServiceArtifact {}", e);
-                            throw e;
-                        }
-                    }
-            )
-            .onErrorResumeNext(Observable.just(new TapServiceArtifact()))
-                .doOnNext(artifact -> LOG.info("Service artifact: {}", artifact)));
-
+            .map(TapServiceArtifact::new)
+            .doOnNext(artifact -> LOG.info("Service artifact: {}", artifact)));
     }
 
     Observable<TapInfo> tapInfo() {
-        return Observable.defer(() -> tap.getTapInfo()
-            .onErrorResumeNext(Observable.just(new TapInfo())));
+        return Observable.defer(tap::getTapInfo);
     }
 
 }
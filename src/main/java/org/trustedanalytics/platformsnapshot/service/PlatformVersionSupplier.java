@@ -18,8 +18,11 @@ package org.trustedanalytics.platformsnapshot.service;
 import org.springframework.context.annotation.Profile;
 import org.trustedanalytics.platformsnapshot.client.TapOperations;
 import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
-import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhCluster;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhRxOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
 import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards.Path;
 import org.trustedanalytics.platformsnapshot.model.PlatformVersion;
 
 import org.slf4j.Logger;
@@ -39,12 +42,13 @@ public class PlatformVersionSupplier implements Supplier<Observable<PlatformVers
     private static final Logger LOG = LoggerFactory.getLogger(PlatformVersionSupplier.class);
 
     private final TapOperations tapOperations;
-    private final CdhOperations cdhOperations;
+    private final CdhRxOperations cdhOperations;
 
     @Autowired
-    public PlatformVersionSupplier(TapOperations tapOperations, CdhOperations cdhOperations) {
-        this.tapOperations = Objects.requireNonNull(tapOperations,"tapOperations");
-        this.cdhOperations = Objects.requireNonNull(cdhOperations, "cdhOperations");
+    public PlatformVersionSupplier(TapOperations tapOperations, CdhOperations cdhOperations, UpstreamGuards guards) {
+        this.tapOperations = guards.tap(Objects.requireNonNull(tapOperations,"tapOperations"), Path.VERSION);
+        this.cdhOperations = guards.cdh(CdhRxOperations.of(Objects.requireNonNull(cdhOperations, "cdhOperations")),
+            Path.VERSION);
     }
 
     @Override
@@ -71,9 +75,10 @@ public class PlatformVersionSupplier implements Supplier<Observable<PlatformVers
     }
 
     private Observable<String> cdhVersion() {
-        return Observable.defer(() -> Observable.from(cdhOperations.getCdhClusters().getItems()))
-            .limit(1)
-            .map(CdhCluster::getFullVersion)
+        return cdhOperations.clusters()
+            .flatMapIterable(CdhClusters::getItems)
+            .toList()
+            .map(CdhClusters::fullVersion)
             .onErrorResumeNext(ex -> {
                 LOG.error("Request for cloudera version failed", ex);
                 return Observable.just(null);
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Circuit breakers and bulkheads around the TAP and Cloudera Manager calls.
+ */
+@Configuration
+@ConfigurationProperties("resilience")
+@Getter
+@Setter
+public class ResilienceConfiguration {
+
+    private boolean enabled = true;
+
+    /**
+     * Length in seconds of the rolling window in which the failure rate is measured.
+     */
+    private int windowSeconds = 300;
+
+    /**
+     * Number of calls in the window below which the breaker stays closed whatever fails.
+     */
+    private int minimumCalls = 5;
+
+    /**
+     * Share of failed calls in the window from which the breaker opens.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Time in seconds an open breaker rejects calls before it lets probe calls through.
+     */
+    private int openSeconds = 30;
+
+    /**
+     * Number of probe calls which all have to succeed to close the breaker again.
+     */
+    private int halfOpenCalls = 3;
+
+    /**
+     * Time in seconds a call may wait for its next element or completion before it fails
+     * and counts as a failure of the upstream, 0 for no limit.
+     */
+    private int timeoutSeconds = 60;
+
+    /**
+     * Calls in flight to one upstream while a snapshot is collected.
+     */
+    private int snapshotConcurrency = 8;
+
+    /**
+     * Calls in flight to one upstream on behalf of /rest/v1/versions requests.
+     */
+    private int versionConcurrency = 4;
+
+    /**
+     * When enabled a TAP or Cloudera Manager read which did not respond within
+     * hedgingPercentile of the recent latencies is sent once more and the first response wins.
+     */
+    private boolean hedging = false;
+
+    private double hedgingPercentile = 0.95;
+
+    /**
+     * Number of recent latencies per operation the percentile is taken from.
+     */
+    private int hedgingWindow = 100;
+
+    /**
+     * Number of latencies per operation which have to be known before calls are hedged.
+     */
+    private int hedgingMinSamples = 20;
+
+    private long hedgingMinDelayMillis = 100;
+}
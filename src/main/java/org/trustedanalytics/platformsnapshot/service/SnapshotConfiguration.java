@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConfigurationProperties("snapshot")
+@Getter
+@Setter
+public class SnapshotConfiguration {
+
+    /**
+     * When enabled all TAP and CDH sources are fetched at the same time, otherwise
+     * they are fetched one after another on the scheduler thread.
+     */
+    private boolean parallelCollection = true;
+
+    /**
+     * Size of the thread pool issuing blocking TAP and CDH calls during collection.
+     */
+    private int collectionThreads = 4;
+
+    /**
+     * When enabled artifacts which did not change since the previous snapshot are
+     * shared with it instead of being stored again.
+     */
+    private boolean incrementalPersistence = false;
+
+    /**
+     * Number of artifacts written in one transaction while a snapshot is collected.
+     */
+    private int persistenceBatchSize = 100;
+
+    /**
+     * When enabled only the replica holding the Postgres advisory lock collects snapshots,
+     * other replicas forward triggers to it.
+     */
+    private boolean leaderElection = true;
+
+    /**
+     * Key of the Postgres advisory lock held by the leader replica.
+     */
+    private long leaderLockKey = "platform-snapshot".hashCode();
+
+    /**
+     * Interval in seconds in which replicas check the leader lock and the leader picks up forwarded triggers.
+     */
+    private int leaderHeartbeatSeconds = 10;
+
+    /**
+     * Deadline in seconds for collecting a single source. A source which misses it is stored
+     * as incomplete and does not hold up the rest of the snapshot.
+     */
+    private long sourceTimeoutSeconds = 300;
+
+    /**
+     * Deadlines overriding sourceTimeoutSeconds for single sources, keyed by source name,
+     * e.g. TAP_APPLICATIONS.
+     */
+    private Map<String, Long> sourceTimeouts = new HashMap<>();
+
+    /**
+     * Cron expression of scheduled snapshots, e.g. "0 0 2 * * *". When empty snapshots are
+     * scheduled in scheduleIntervalMinutes.
+     */
+    private String scheduleCron;
+
+    /**
+     * Interval between scheduled snapshots in minutes.
+     */
+    private long scheduleIntervalMinutes = TimeUnit.DAYS.toMinutes(1);
+
+    /**
+     * Upper bound in minutes of a random delay added to every scheduled snapshot.
+     */
+    private long scheduleJitterMinutes = 0;
+
+    /**
+     * When enabled the interval is halved after a snapshot with high churn and doubled
+     * after a quiet one. Not used together with scheduleCron.
+     */
+    private boolean adaptiveSchedule = false;
+
+    private long adaptiveMinIntervalMinutes = TimeUnit.HOURS.toMinutes(1);
+
+    private long adaptiveMaxIntervalMinutes = TimeUnit.DAYS.toMinutes(7);
+
+    /**
+     * Share of changed artifacts from which a snapshot counts as busy.
+     */
+    private double adaptiveHighChurn = 0.05;
+
+    /**
+     * Share of changed artifacts up to which a snapshot counts as quiet.
+     */
+    private double adaptiveLowChurn = 0.01;
+
+    /**
+     * Minimum time in minutes between two catch-up snapshots, which run when a replica
+     * becomes the leader after a scheduled snapshot was missed.
+     */
+    private long catchUpDebounceMinutes = 60;
+
+    /**
+     * Number of applications or offerings requested from TAP in one page. When 0 they are
+     * listed in a single response.
+     */
+    private int tapPageSize = 0;
+
+    /**
+     * Number of TAP pages fetched at the same time when the total count is known.
+     */
+    private int tapPageConcurrency = 4;
+
+    /**
+     * When enabled TAP and Cloudera Manager are called through a non-blocking HTTP client,
+     * so requests in flight do not hold a thread each.
+     */
+    private boolean asyncClients = false;
+
+    /**
+     * When enabled access tokens are verified against the UAA signing keys in memory
+     * instead of being checked by UAA.
+     */
+    private boolean localJwtValidation = false;
+
+    /**
+     * Interval in minutes in which the UAA signing keys are fetched again.
+     */
+    private long jwtKeyRefreshMinutes = 15;
+
+    /**
+     * Directory in which raw TAP and Cloudera responses are recorded. Recording is off when empty.
+     */
+    private String recordingDirectory;
+
+    /**
+     * Directory with recorded responses served instead of TAP and Cloudera in the replay profile.
+     */
+    private String replayDirectory;
+
+    /**
+     * Number of times recorded applications, offerings and Cloudera services are repeated during replay.
+     */
+    private int replayScale = 1;
+
+    public long timeoutSeconds(SnapshotSource source) {
+        return sourceTimeouts.getOrDefault(source.name(), sourceTimeoutSeconds);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.util.StringUtils;
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the next scheduled snapshot runs. Snapshots run either at times given by
+ * a cron expression or in a fixed interval, delayed by a random jitter.
+ *
+ * In adaptive mode the interval is halved after a snapshot in which a large share of
+ * artifacts changed or was removed and doubled after a quiet one, within the configured
+ * bounds. The scheduler stores the interval, so it survives restarts and failovers.
+ */
+public class SnapshotSchedulePolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotSchedulePolicy.class);
+    private static final long FIRST_RUN_DELAY = TimeUnit.HOURS.toMillis(1);
+
+    private final CronSequenceGenerator cron;
+    private final long jitter;
+    private final boolean adaptive;
+    private final long minInterval;
+    private final long maxInterval;
+    private final double highChurn;
+    private final double lowChurn;
+
+    private volatile long interval;
+
+    public SnapshotSchedulePolicy(SnapshotConfiguration configuration) {
+        this.cron = StringUtils.hasText(configuration.getScheduleCron())
+            ? new CronSequenceGenerator(configuration.getScheduleCron())
+            : null;
+        this.interval = TimeUnit.MINUTES.toMillis(configuration.getScheduleIntervalMinutes());
+        this.jitter = TimeUnit.MINUTES.toMillis(configuration.getScheduleJitterMinutes());
+        this.adaptive = configuration.isAdaptiveSchedule() && cron == null;
+        this.minInterval = TimeUnit.MINUTES.toMillis(configuration.getAdaptiveMinIntervalMinutes());
+        this.maxInterval = TimeUnit.MINUTES.toMillis(configuration.getAdaptiveMaxIntervalMinutes());
+        this.highChurn = configuration.getAdaptiveHighChurn();
+        this.lowChurn = configuration.getAdaptiveLowChurn();
+        if (configuration.isAdaptiveSchedule() && cron != null) {
+            LOG.warn("Adaptive schedule is ignored when a cron expression is configured");
+        }
+    }
+
+    public long firstDelayMillis(Date now) {
+        return cron == null ? Math.min(FIRST_RUN_DELAY, interval) + jitter() : nextDelayMillis(now);
+    }
+
+    public long nextDelayMillis(Date now) {
+        final long delay = cron == null ? interval : cron.next(now).getTime() - now.getTime();
+        return delay + jitter();
+    }
+
+    /**
+     * Time at which the snapshot following one taken at the given time is due, without jitter.
+     */
+    public Date nextRunAfter(Date last) {
+        return cron == null ? new Date(last.getTime() + interval) : cron.next(last);
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Continues with an interval adapted before a restart or by another replica.
+     */
+    public void restoreInterval(long intervalMillis) {
+        if (adaptive) {
+            interval = Math.min(maxInterval, Math.max(minInterval, intervalMillis));
+        }
+    }
+
+    /**
+     * Adapts the interval to the share of artifacts which changed in the snapshot or were
+     * removed since the previous one.
+     */
+    public void snapshotCompleted(PlatformSnapshot snapshot) {
+        if (!adaptive || snapshot.getTotalArtifacts() == null) {
+            return;
+        }
+        final long removed = Optional.ofNullable(snapshot.getRemovedArtifacts()).orElse(0L);
+        final long compared = snapshot.getTotalArtifacts() + removed;
+        if (compared == 0) {
+            return;
+        }
+        final double churn = (double) (snapshot.getChangedArtifacts() + removed) / compared;
+        if (churn >= highChurn) {
+            interval = Math.max(minInterval, interval / 2);
+        } else if (churn <= lowChurn) {
+            interval = Math.min(maxInterval, interval * 2);
+        }
+        LOG.info("Snapshot churn {}, scheduling interval {} minutes", churn, TimeUnit.MILLISECONDS.toMinutes(interval));
+    }
+
+    long getIntervalMillis() {
+        return interval;
+    }
+
+    private long jitter() {
+        return jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0;
+    }
+}
@@ -76,6 +76,10 @@ public abstract class AbstractDiffProcessor implements DiffProcessor {
     }
 
     private Object resolveArtifactName(DiffNode node, Object target) {
+        if (target instanceof CdhServiceArtifact) {
+            // the same service name can be used in more clusters
+            return ((CdhServiceArtifact) target).key();
+        }
         return TAP_ARTIFACTS.contains(node.getParentNode().getValueType()) ? resolveField(target, "name") : resolveField(target, "label");
     }
 
@@ -0,0 +1,8 @@
+CREATE TABLE SNAPSHOT_JOB_STATUS(
+    JOB_ID VARCHAR(36) NOT NULL,
+    PHASE VARCHAR(32) NOT NULL,
+    SNAPSHOT_ID BIGINT,
+    UPDATED_AT TIMESTAMP NOT NULL
+);
+ALTER TABLE SNAPSHOT_JOB_STATUS ADD PRIMARY KEY(JOB_ID);
+CREATE INDEX SNAPSHOT_JOB_STATUS_UPDATED_IDX ON SNAPSHOT_JOB_STATUS(UPDATED_AT);
@@ -0,0 +1,2 @@
+ALTER TABLE PLATFORM_SNAPSHOT ADD REMOVED_ARTIFACTS BIGINT;
+ALTER TABLE SNAPSHOT_SCHEDULE_STATE ADD INTERVAL_MILLIS BIGINT;
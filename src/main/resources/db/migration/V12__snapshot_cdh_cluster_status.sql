@@ -0,0 +1,7 @@
+CREATE TABLE SNAPSHOT_CDH_CLUSTER_STATUS(
+    SNAPSHOT_ID BIGINT NOT NULL,
+    CLUSTER_NAME VARCHAR(1024) NOT NULL,
+    STATUS VARCHAR(64) NOT NULL
+);
+ALTER TABLE SNAPSHOT_CDH_CLUSTER_STATUS ADD PRIMARY KEY(SNAPSHOT_ID, CLUSTER_NAME);
+ALTER TABLE SNAPSHOT_CDH_CLUSTER_STATUS ADD FOREIGN KEY(SNAPSHOT_ID) REFERENCES PLATFORM_SNAPSHOT(ID);
@@ -0,0 +1,42 @@
+ALTER TABLE TAP_APPLICATION_ARTIFACT ADD CONTENT_HASH VARCHAR(64);
+ALTER TABLE TAP_SERVICE_ARTIFACT ADD CONTENT_HASH VARCHAR(64);
+ALTER TABLE CDH_SERVICE_ARTIFACT ADD CONTENT_HASH VARCHAR(64);
+
+CREATE TABLE SNAPSHOT_TAP_APPLICATION(
+    SNAPSHOT_ID BIGINT NOT NULL,
+    ARTIFACT_ID BIGINT NOT NULL
+);
+ALTER TABLE SNAPSHOT_TAP_APPLICATION ADD PRIMARY KEY(SNAPSHOT_ID, ARTIFACT_ID);
+ALTER TABLE SNAPSHOT_TAP_APPLICATION ADD FOREIGN KEY(SNAPSHOT_ID) REFERENCES PLATFORM_SNAPSHOT(ID);
+ALTER TABLE SNAPSHOT_TAP_APPLICATION ADD FOREIGN KEY(ARTIFACT_ID) REFERENCES TAP_APPLICATION_ARTIFACT(ID);
+CREATE INDEX SNAPSHOT_TAP_APPLICATION_ARTIFACT_IDX ON SNAPSHOT_TAP_APPLICATION(ARTIFACT_ID);
+
+INSERT INTO SNAPSHOT_TAP_APPLICATION(SNAPSHOT_ID, ARTIFACT_ID)
+    SELECT SNAPSHOT_ID, ID FROM TAP_APPLICATION_ARTIFACT WHERE SNAPSHOT_ID IS NOT NULL;
+ALTER TABLE TAP_APPLICATION_ARTIFACT DROP COLUMN SNAPSHOT_ID;
+
+CREATE TABLE SNAPSHOT_TAP_SERVICE(
+    SNAPSHOT_ID BIGINT NOT NULL,
+    ARTIFACT_ID BIGINT NOT NULL
+);
+ALTER TABLE SNAPSHOT_TAP_SERVICE ADD PRIMARY KEY(SNAPSHOT_ID, ARTIFACT_ID);
+ALTER TABLE SNAPSHOT_TAP_SERVICE ADD FOREIGN KEY(SNAPSHOT_ID) REFERENCES PLATFORM_SNAPSHOT(ID);
+ALTER TABLE SNAPSHOT_TAP_SERVICE ADD FOREIGN KEY(ARTIFACT_ID) REFERENCES TAP_SERVICE_ARTIFACT(ID);
+CREATE INDEX SNAPSHOT_TAP_SERVICE_ARTIFACT_IDX ON SNAPSHOT_TAP_SERVICE(ARTIFACT_ID);
+
+INSERT INTO SNAPSHOT_TAP_SERVICE(SNAPSHOT_ID, ARTIFACT_ID)
+    SELECT SNAPSHOT_ID, ID FROM TAP_SERVICE_ARTIFACT WHERE SNAPSHOT_ID IS NOT NULL;
+ALTER TABLE TAP_SERVICE_ARTIFACT DROP COLUMN SNAPSHOT_ID;
+
+CREATE TABLE SNAPSHOT_CDH_SERVICE(
+    SNAPSHOT_ID BIGINT NOT NULL,
+    ARTIFACT_ID BIGINT NOT NULL
+);
+ALTER TABLE SNAPSHOT_CDH_SERVICE ADD PRIMARY KEY(SNAPSHOT_ID, ARTIFACT_ID);
+ALTER TABLE SNAPSHOT_CDH_SERVICE ADD FOREIGN KEY(SNAPSHOT_ID) REFERENCES PLATFORM_SNAPSHOT(ID);
+ALTER TABLE SNAPSHOT_CDH_SERVICE ADD FOREIGN KEY(ARTIFACT_ID) REFERENCES CDH_SERVICE_ARTIFACT(ID);
+CREATE INDEX SNAPSHOT_CDH_SERVICE_ARTIFACT_IDX ON SNAPSHOT_CDH_SERVICE(ARTIFACT_ID);
+
+INSERT INTO SNAPSHOT_CDH_SERVICE(SNAPSHOT_ID, ARTIFACT_ID)
+    SELECT SNAPSHOT_ID, ID FROM CDH_SERVICE_ARTIFACT WHERE SNAPSHOT_ID IS NOT NULL;
+ALTER TABLE CDH_SERVICE_ARTIFACT DROP COLUMN SNAPSHOT_ID;
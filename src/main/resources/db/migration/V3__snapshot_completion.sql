@@ -0,0 +1,2 @@
+ALTER TABLE PLATFORM_SNAPSHOT ADD COMPLETED_AT TIMESTAMP;
+UPDATE PLATFORM_SNAPSHOT SET COMPLETED_AT = CREATED_AT;
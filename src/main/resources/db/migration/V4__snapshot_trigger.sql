@@ -0,0 +1,5 @@
+CREATE TABLE SNAPSHOT_TRIGGER(
+    JOB_ID VARCHAR(36) NOT NULL,
+    REQUESTED_AT TIMESTAMP NOT NULL
+);
+ALTER TABLE SNAPSHOT_TRIGGER ADD PRIMARY KEY(JOB_ID);
@@ -0,0 +1 @@
+ALTER TABLE CDH_SERVICE_ARTIFACT ADD CLUSTER_NAME VARCHAR(1024);
@@ -0,0 +1,7 @@
+CREATE TABLE SNAPSHOT_SOURCE_STATUS(
+    SNAPSHOT_ID BIGINT NOT NULL,
+    SOURCE VARCHAR(64) NOT NULL,
+    STATUS VARCHAR(64) NOT NULL
+);
+ALTER TABLE SNAPSHOT_SOURCE_STATUS ADD PRIMARY KEY(SNAPSHOT_ID, SOURCE);
+ALTER TABLE SNAPSHOT_SOURCE_STATUS ADD FOREIGN KEY(SNAPSHOT_ID) REFERENCES PLATFORM_SNAPSHOT(ID);
@@ -0,0 +1,2 @@
+ALTER TABLE PLATFORM_SNAPSHOT ADD TOTAL_ARTIFACTS BIGINT;
+ALTER TABLE PLATFORM_SNAPSHOT ADD CHANGED_ARTIFACTS BIGINT;
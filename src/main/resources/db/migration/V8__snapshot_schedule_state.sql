@@ -0,0 +1,6 @@
+CREATE TABLE SNAPSHOT_SCHEDULE_STATE(
+    ID BIGINT NOT NULL,
+    NEXT_RUN_AT TIMESTAMP,
+    LAST_CATCH_UP_AT TIMESTAMP
+);
+ALTER TABLE SNAPSHOT_SCHEDULE_STATE ADD PRIMARY KEY(ID);
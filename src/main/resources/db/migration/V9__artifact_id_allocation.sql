@@ -0,0 +1,3 @@
+ALTER SEQUENCE ARTIFACT_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE TAP_SERVICE_ARTIFACT_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE CDH_ARTIFACT_ID_SEQ INCREMENT BY 50;
@@ -27,9 +27,12 @@ import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
 import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
 import org.trustedanalytics.platformsnapshot.client.entity.TapService;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.Assert.assertEquals;
@@ -99,6 +102,87 @@ public class TapRxClientTest {
 
     }
 
+    @Test
+    public void testGetApplicationsInPages() throws IOException {
+        // given
+        final TapOperations pagedClient = new TapRxClient(builder -> builder
+            .logLevel(Logger.Level.BASIC), "http://localhost:" + wireMockRule.port(), 1, 2, Schedulers.io());
+        final String pageJson = loadJson("application.json");
+        for (int page = 1; page <= 3; page++) {
+            stubFor(get(urlPathEqualTo("/v3/applications"))
+                .withQueryParam("page", equalTo(String.valueOf(page)))
+                .withQueryParam("per_page", equalTo("1"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withHeader("X-Total-Count", "3")
+                    .withBody(pageJson)));
+        }
+
+        // when
+        final List<TapApplication> apps = pagedClient.getApplications().toList().toBlocking().single();
+
+        // then
+        assertEquals(3, apps.size());
+        verify(3, getRequestedFor(urlMatching("/v3/applications\\?page=.*")));
+    }
+
+    @Test
+    public void testMalformedTotalCountFollowsNextLinks() throws IOException {
+        // given
+        final TapOperations pagedClient = new TapRxClient(builder -> builder
+            .logLevel(Logger.Level.BASIC), "http://localhost:" + wireMockRule.port(), 2, 2, Schedulers.io());
+        final String pageJson = loadJson("application.json");
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .withQueryParam("page", equalTo("1"))
+            .withQueryParam("per_page", equalTo("2"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withHeader("X-Total-Count", "unknown")
+                .withHeader("Link", "</v3/applications?page=2&per_page=2>; rel=\"next\"")
+                .withBody(pageJson)));
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .withQueryParam("page", equalTo("2"))
+            .withQueryParam("per_page", equalTo("2"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(pageJson)));
+
+        // when
+        final List<TapApplication> apps = pagedClient.getApplications().toList().toBlocking().single();
+
+        // then
+        assertEquals(2, apps.size());
+    }
+
+    @Test
+    public void testGetServicesFollowsNextLinks() throws IOException {
+        // given
+        final String pageJson = loadJson("v3offerings.json");
+        stubFor(get(urlPathEqualTo("/v3/offerings"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withHeader("Link", "</v3/offerings?page=2>; rel=\"next\"")
+                .withBody(pageJson)));
+        stubFor(get(urlPathEqualTo("/v3/offerings"))
+            .withQueryParam("page", equalTo("2"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(pageJson)));
+        final int pageSize = client.getServices().count().toBlocking().single();
+
+        // when
+        final int services = client.getServices(URI.create("http://localhost:" + wireMockRule.port() + "/v3/offerings"))
+            .count().toBlocking().single();
+
+        // then
+        assertEquals(2 * pageSize, services);
+    }
+
     private String loadJson(String name) {
         try {
             return CharStreams.toString(new InputStreamReader(getClass().getClassLoader().getResourceAsStream(name)));
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.async;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.CharStreams;
+import feign.FeignException;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiter;
+import org.trustedanalytics.platformsnapshot.client.resilience.AdaptiveLimiters;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+
+public class AsyncClientsTest {
+
+    @ClassRule
+    public static WireMockRule wireMockRule = new WireMockRule();
+
+    CloseableHttpAsyncClient httpAsyncClient;
+    String baseUrl;
+
+    @Before
+    public void before() {
+        httpAsyncClient = HttpAsyncClients.createDefault();
+        httpAsyncClient.start();
+        baseUrl = "http://localhost:" + wireMockRule.port();
+    }
+
+    @After
+    public void after() throws IOException {
+        httpAsyncClient.close();
+    }
+
+    @Test
+    public void testGetApplications() {
+        // given
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(loadJson("application.json"))));
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+
+        // when
+        final TapApplication app = client.getApplications().toBlocking().first();
+
+        // then
+        assertEquals("my-python-app", app.getName());
+    }
+
+    @Test
+    public void testGetTapInfo() {
+        // given
+        stubFor(get(urlPathEqualTo("/v3/platform_info"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(loadJson("v3info.json"))));
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+
+        // when
+        final TapInfo info = client.getTapInfo().toBlocking().single();
+
+        // then
+        assertEquals("0.8.0.2417", info.getPlatformVersion());
+    }
+
+    @Test
+    public void testLargeBodyIsDecodedCompletely() {
+        // given
+        final String apps = loadJson("application.json").trim();
+        final int copies = 500;
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(apps)));
+        final int perCopy = client.getApplications().count().toBlocking().single();
+        final String app = apps.substring(1, apps.length() - 1);
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody("[" + String.join(",", Collections.nCopies(copies, app)) + "]")));
+
+        // when
+        final int count = client.getApplications().count().toBlocking().single();
+
+        // then
+        assertEquals(copies * perCopy, count);
+    }
+
+    @Test
+    public void testErrorStatusFails() {
+        // given
+        stubFor(get(urlPathEqualTo("/v3/offerings"))
+            .willReturn(aResponse().withStatus(500)));
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+        final TestSubscriber<Object> testSubscriber = new TestSubscriber<>();
+
+        // when
+        client.getServices().subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        // then
+        testSubscriber.assertError(FeignException.class);
+    }
+
+    @Test
+    public void testGetCdhClusters() {
+        // given
+        stubFor(get(urlPathEqualTo("/api/v11/clusters"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(loadJson("cdhcluster.json"))));
+        final AsyncCdhClient client = new AsyncCdhClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+
+        // when
+        final CdhClusters clusters = client.clusters().toBlocking().single();
+
+        // then
+        assertEquals("CDH-cluster", clusters.getItems().iterator().next().getName());
+    }
+
+    @Test
+    public void testGetApplicationsInPages() {
+        // given
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl,
+            1, 2);
+        final String pageJson = loadJson("application.json");
+        for (int page = 1; page <= 3; page++) {
+            stubFor(get(urlPathEqualTo("/v3/applications"))
+                .withQueryParam("page", equalTo(String.valueOf(page)))
+                .withQueryParam("per_page", equalTo("1"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withHeader("X-Total-Count", "3")
+                    .withBody(pageJson)));
+        }
+
+        // when
+        final int apps = client.getApplications().count().toBlocking().single();
+
+        // then
+        assertEquals(3, apps);
+        verify(3, getRequestedFor(urlMatching("/v3/applications\\?page=.*&per_page=1")));
+    }
+
+    @Test
+    public void testGetApplicationsFollowsNextLinks() {
+        // given
+        final TapOperations client = new AsyncTapClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl,
+            2, 2);
+        final String pageJson = loadJson("application.json");
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .withQueryParam("page", equalTo("1"))
+            .withQueryParam("per_page", equalTo("2"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withHeader("Link", "</v3/applications?page=2&per_page=2>; rel=\"next\"")
+                .withBody(pageJson)));
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .withQueryParam("page", equalTo("2"))
+            .withQueryParam("per_page", equalTo("2"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(pageJson)));
+
+        // when
+        final int apps = client.getApplications().count().toBlocking().single();
+
+        // then
+        assertEquals(2, apps);
+    }
+
+    @Test
+    public void testMissingClusterFailsLikeFeignClient() {
+        // given
+        stubFor(get(urlPathEqualTo("/api/v11/clusters/missing/services"))
+            .willReturn(aResponse().withStatus(404)));
+        final AsyncCdhClient client = new AsyncCdhClient(new AsyncRequests(httpAsyncClient, Schedulers.io()), baseUrl);
+        final TestSubscriber<Object> testSubscriber = new TestSubscriber<>();
+
+        // when
+        client.services("missing").subscribe(testSubscriber);
+        testSubscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        // then
+        testSubscriber.assertError(FeignException.class);
+        assertEquals(404, ((FeignException) testSubscriber.getOnErrorEvents().get(0)).status());
+    }
+
+    @Test
+    public void testLimiterPermitIsReleasedOnceBodyIsReceived() {
+        // given
+        stubFor(get(urlPathEqualTo("/v3/platform_info"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(loadJson("v3info.json"))));
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("localhost", 1, 1, 1, 2.0, 0.5);
+        final AsyncRequests requests = new AsyncRequests(httpAsyncClient, Schedulers.io(),
+            new AdaptiveLimiters(host -> limiter), 1000);
+        final TapOperations client = new AsyncTapClient(requests, baseUrl);
+
+        // when
+        client.getTapInfo().toBlocking().single();
+        final TapInfo info = client.getTapInfo().toBlocking().single();
+
+        // then
+        assertEquals("0.8.0.2417", info.getPlatformVersion());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private String loadJson(String name) {
+        try {
+            return CharStreams.toString(new InputStreamReader(getClass().getClassLoader().getResourceAsStream(name)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+    }
+}
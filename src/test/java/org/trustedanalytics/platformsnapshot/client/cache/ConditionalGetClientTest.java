@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.cache;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.ByteStreams;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.codec.Decoder;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConditionalGetClientTest {
+
+    private static final String BODY = "{\"platform_version\": \"0.8.0\"}";
+
+    @ClassRule
+    public static WireMockRule wireMockRule = new WireMockRule();
+
+    Client client;
+
+    @Before
+    public void before() {
+        reset();
+        client = new ConditionalGetClient(new Client.Default(null, null), 10, 1024);
+    }
+
+    @Test
+    public void testNotModifiedResponseReusesBody() throws IOException {
+        // given
+        stubFor(get(urlEqualTo("/v3/platform_info"))
+            .willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v1\"").withBody(BODY)));
+        stubFor(get(urlEqualTo("/v3/platform_info")).withHeader("If-None-Match", equalTo("\"v1\""))
+            .willReturn(aResponse().withStatus(304)));
+        execute();
+
+        // when
+        final Response response = execute();
+
+        // then
+        assertEquals(200, response.status());
+        assertEquals(BODY, body(response));
+        verify(2, getRequestedFor(urlEqualTo("/v3/platform_info")));
+        verify(1, getRequestedFor(urlEqualTo("/v3/platform_info")).withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+    @Test
+    public void testResponseWithoutValidatorIsNotCached() throws IOException {
+        // given
+        stubFor(get(urlEqualTo("/v3/platform_info"))
+            .willReturn(aResponse().withStatus(200).withBody(BODY)));
+        execute();
+
+        // when
+        execute();
+
+        // then
+        verify(0, getRequestedFor(urlEqualTo("/v3/platform_info")).withHeader("If-None-Match", matching(".*")));
+    }
+
+    @Test
+    public void testUnchangedBodyIsDecodedOnce() throws IOException {
+        // given
+        stubFor(get(urlEqualTo("/v3/platform_info"))
+            .willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v1\"").withBody(BODY)));
+        stubFor(get(urlEqualTo("/v3/platform_info")).withHeader("If-None-Match", equalTo("\"v1\""))
+            .willReturn(aResponse().withStatus(304)));
+        final Decoder delegate = mock(Decoder.class);
+        when(delegate.decode(any(), any())).thenAnswer(invocation -> new Object());
+        final Decoder decoder = new CachingDecoder(delegate);
+        final Object first = decoder.decode(execute(), Object.class);
+
+        // when
+        final Object second = decoder.decode(execute(), Object.class);
+
+        // then
+        assertSame(first, second);
+        verify(delegate, times(1)).decode(any(), any());
+    }
+
+    @Test
+    public void testLargeBodyIsStreamedWithoutValidator() throws IOException {
+        // given
+        final String large = largeBody();
+        stubFor(get(urlEqualTo("/v3/platform_info"))
+            .willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v1\"").withBody(large)));
+        execute();
+
+        // when
+        final Response response = execute();
+
+        // then
+        assertEquals(large, body(response));
+        assertNull(ConditionalGetClient.header(response.headers(), ConditionalGetClient.VALIDATOR_HEADER));
+        verify(0, getRequestedFor(urlEqualTo("/v3/platform_info")).withHeader("If-None-Match", matching(".*")));
+    }
+
+    @Test
+    public void testLargeBodyWithoutLengthIsStreamed() throws IOException {
+        // given
+        final String large = largeBody();
+        final Client delegate = mock(Client.class);
+        when(delegate.execute(any(), any())).thenAnswer(invocation -> Response.create(200, "OK",
+            Collections.singletonMap("ETag", Collections.singletonList("\"v1\"")),
+            new ByteArrayInputStream(large.getBytes(StandardCharsets.UTF_8)), null));
+        client = new ConditionalGetClient(delegate, 10, 1024);
+
+        // when
+        final Response response = execute();
+
+        // then
+        assertEquals(large, body(response));
+        assertNull(ConditionalGetClient.header(response.headers(), ConditionalGetClient.VALIDATOR_HEADER));
+    }
+
+    private String largeBody() {
+        final StringBuilder body = new StringBuilder();
+        while (body.length() <= 4096) {
+            body.append(BODY);
+        }
+        return body.toString();
+    }
+
+    private Response execute() throws IOException {
+        return client.execute(Request.create("GET", "http://localhost:" + wireMockRule.port() + "/v3/platform_info",
+            Collections.emptyMap(), null, null), new Request.Options());
+    }
+
+    private String body(Response response) throws IOException {
+        try (InputStream in = response.body().asInputStream()) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.decoder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import feign.Response;
+import org.springframework.core.io.ClassPathResource;
+import org.trustedanalytics.platformsnapshot.client.JsonMapping;
+import org.trustedanalytics.platformsnapshot.client.LocalDateTimeDeserializer;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Compares decoding a large TAP application listing with a plain mapper and with the shared
+ * {@link JsonMapping}. Run as a main class, it is not part of the test suite.
+ */
+public class TapDecoderBenchmark {
+
+    private static final int APPLICATIONS = 10_000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        final byte[] listing = listing(args.length > 0 ? Integer.parseInt(args[0]) : APPLICATIONS);
+
+        final ObjectMapper plain = new ObjectMapper()
+            .setPropertyNamingStrategy(new PropertyNamingStrategy.LowerCaseWithUnderscoresStrategy())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(new SimpleModule()
+                .addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer()));
+
+        measure("plain mapper", new TapRxDecoder(plain), listing);
+        measure("shared mapping", new TapRxDecoder(JsonMapping.tap()), listing);
+    }
+
+    private static void measure(String name, TapRxDecoder decoder, byte[] listing) {
+        // warm up the deserializers and the JIT
+        decode(decoder, listing);
+        decode(decoder, listing);
+
+        final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        final long start = System.nanoTime();
+        int decoded = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            decoded += decode(decoder, listing);
+        }
+        final long nanos = System.nanoTime() - start;
+        final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        System.out.printf("%-15s %8.2f ms/listing %10d bytes/application%n",
+            name, nanos / 1e6 / ROUNDS, allocated / decoded);
+    }
+
+    private static int decode(TapRxDecoder decoder, byte[] listing) {
+        final Response response = Response.create(200, "OK", Collections.emptyMap(), listing);
+        return decoder.stream(() -> response, TapApplication.class)
+            .count()
+            .toBlocking()
+            .single();
+    }
+
+    private static byte[] listing(int size) throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final ArrayNode recorded = (ArrayNode) mapper.readTree(
+            new ClassPathResource("application.json").getInputStream());
+        final ArrayNode listing = mapper.createArrayNode();
+        for (int i = 0; i < size; i++) {
+            final ObjectNode application = (ObjectNode) recorded.get(i % recorded.size()).deepCopy();
+            application.put("id", UUID.nameUUIDFromBytes(Integer.toString(i).getBytes()).toString());
+            application.put("name", application.path("name").asText() + "-" + i);
+            listing.add(application);
+        }
+        return mapper.writeValueAsBytes(listing);
+    }
+}
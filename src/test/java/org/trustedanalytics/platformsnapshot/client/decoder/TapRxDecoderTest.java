@@ -16,7 +16,11 @@
 package org.trustedanalytics.platformsnapshot.client.decoder;
 
 import static org.mockito.Matchers.any;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -39,13 +43,18 @@ import feign.Response.Body;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import rx.Observable;
+import rx.Subscriber;
 import rx.observers.TestSubscriber;
 
 public class TapRxDecoderTest {
@@ -98,6 +107,128 @@ public class TapRxDecoderTest {
         verifyNoMoreInteractions(client);
     }
 
+    @Test
+    public void testStreamParsesOnlyRequestedElements() {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+        final Response response = Response.create(200, "reason", new HashMap<>(),
+            "[{\"id\": \"first\"}, {\"id\": \"second\"}, not json".getBytes(StandardCharsets.UTF_8));
+        final List<String> ids = new ArrayList<>();
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        // when
+        decoder.stream(() -> response, TapService.class).subscribe(new Subscriber<TapService>() {
+            @Override
+            public void onStart() {
+                request(1);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                failed.set(true);
+            }
+
+            @Override
+            public void onNext(TapService service) {
+                ids.add(service.getId());
+            }
+        });
+
+        // then
+        assertEquals(1, ids.size());
+        assertEquals("first", ids.get(0));
+        assertTrue(!failed.get());
+    }
+
+    @Test
+    public void testStreamClosesBody() throws IOException {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+        final AtomicBoolean closed = new AtomicBoolean();
+        final Body body = mock(Body.class);
+        when(body.asInputStream()).thenReturn(new ByteArrayInputStream("[{\"id\": \"first\"}]".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+            }
+        });
+
+        // when
+        final List<TapService> services = decoder.stream(() -> Response.create(200, "reason", new HashMap<>(), body),
+            TapService.class).toList().toBlocking().single();
+
+        // then
+        assertEquals(1, services.size());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void testDecodeSingleObject() throws IOException {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+
+        // when
+        @SuppressWarnings("unchecked")
+        final Observable<TapInfo> tapInfo = (Observable<TapInfo>) decoder.decode(mockResponse(200, "v3info.json"),
+            (new TypeToken<Observable<TapInfo>>() {}).getType());
+
+        // then
+        assertEquals("0.8.0.2417", tapInfo.toBlocking().single().getPlatformVersion());
+    }
+
+    @Test
+    public void testDecodeSkipsLeadingWhitespaceWithoutReader() throws IOException {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+        final Body body = mock(Body.class);
+        when(body.asInputStream()).thenReturn(new ByteArrayInputStream(
+            " \r\n\t [{\"id\": \"first\"}, {\"id\": \"second\"}]".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        @SuppressWarnings("unchecked")
+        final Observable<TapService> services = (Observable<TapService>) decoder.decode(
+            Response.create(200, "reason", new HashMap<>(), body),
+            (new TypeToken<Observable<TapService>>() {}).getType());
+
+        // then
+        assertEquals(2, services.count().toBlocking().single().intValue());
+        verify(body, never()).asReader();
+    }
+
+    @Test
+    public void testStreamSingleObjectAfterWhitespace() {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+        final Response response = Response.create(200, "reason", new HashMap<>(),
+            "\n  {\"id\": \"only\"}".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final List<TapService> services = decoder.stream(() -> response, TapService.class)
+            .toList().toBlocking().single();
+
+        // then
+        assertEquals(1, services.size());
+        assertEquals("only", services.get(0).getId());
+    }
+
+    @Test
+    public void testStreamEmptyBody() {
+        // given
+        final TapRxDecoder decoder = new TapRxDecoder(MAPPER);
+        final Response response = Response.create(200, "reason", new HashMap<>(), new byte[0]);
+
+        // when
+        final List<TapService> services = decoder.stream(() -> response, TapService.class)
+            .toList().toBlocking().single();
+
+        // then
+        assertTrue(services.isEmpty());
+    }
+
     private Response mockResponse(int status, String resource) throws IOException {
         final Body body = mock(Body.class);
         final ClassPathResource res = new ClassPathResource(resource);
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.replay;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.ByteStreams;
+import feign.Client;
+import feign.Logger;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trustedanalytics.platformsnapshot.client.TapOperations;
+import org.trustedanalytics.platformsnapshot.client.TapRxClient;
+import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
+import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhService;
+import org.trustedanalytics.platformsnapshot.client.entity.TapApplication;
+import rx.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecordingReplayTest {
+
+    @ClassRule
+    public static WireMockRule wireMockRule = new WireMockRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path directory;
+
+    @Before
+    public void before() {
+        directory = folder.getRoot().toPath();
+    }
+
+    @Test
+    public void testRecordedApplicationsAreReplayed() throws IOException {
+        // given
+        stubFor(get(urlPathEqualTo("/v3/applications"))
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(load("application.json"))));
+        final TapOperations client = new TapRxClient(builder -> builder
+            .client(new RecordingClient(new Client.Default(null, null), directory))
+            .logLevel(Logger.Level.BASIC), "http://localhost:" + wireMockRule.port());
+        final List<TapApplication> recorded = client.getApplications().toList().toBlocking().single();
+
+        // when
+        final List<TapApplication> replayed = new ReplayTapOperations(directory, 1)
+            .getApplications().toList().toBlocking().single();
+
+        // then
+        assertEquals(recorded, replayed);
+    }
+
+    @Test
+    public void testPagedApplicationsAreRecordedPerPageAndReplayedTogether() throws IOException {
+        // given
+        for (int page = 1; page <= 3; page++) {
+            stubFor(get(urlPathEqualTo("/v3/applications"))
+                .withQueryParam("page", equalTo(String.valueOf(page)))
+                .withQueryParam("per_page", equalTo("1"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withHeader("X-Total-Count", "3")
+                    .withBody(load("application.json"))));
+        }
+        final TapOperations client = new TapRxClient(builder -> builder
+            .client(new RecordingClient(new Client.Default(null, null), directory))
+            .logLevel(Logger.Level.BASIC), "http://localhost:" + wireMockRule.port(), 1, 1, Schedulers.immediate());
+        final List<TapApplication> recorded = client.getApplications().toList().toBlocking().single();
+
+        // when
+        final List<TapApplication> replayed = new ReplayTapOperations(directory, 1)
+            .getApplications().toList().toBlocking().single();
+
+        // then
+        assertEquals(3, Recordings.pages(directory, "/v3/applications").size());
+        assertEquals(recorded, replayed);
+    }
+
+    @Test
+    public void testReplayedApplicationsAreScaled() throws IOException {
+        // given
+        Recordings.write(Recordings.file(directory, "/v3/applications"), load("application.json"));
+        final int recorded = new ReplayTapOperations(directory, 1).getApplications().count().toBlocking().single();
+
+        // when
+        final List<TapApplication> replayed = new ReplayTapOperations(directory, 3)
+            .getApplications().toList().toBlocking().single();
+
+        // then
+        final Set<String> ids = replayed.stream().map(TapApplication::getId).collect(Collectors.toSet());
+        assertEquals(3 * recorded, replayed.size());
+        assertEquals(3 * recorded, ids.size());
+        assertTrue(replayed.stream().anyMatch(app -> "my-python-app-2".equals(app.getName())));
+    }
+
+    @Test
+    public void testReplayedCdhServicesAreScaled() throws IOException {
+        // given
+        Recordings.write(Recordings.file(directory, "/api/v11/clusters/cluster1/services"), load("cdhservices.json"));
+        final CdhOperations single = new ReplayCdhOperations(directory, 1);
+        final CdhOperations scaled = new ReplayCdhOperations(directory, 2);
+
+        // when
+        final int recorded = single.getCdhServices("cluster1").getItems().size();
+        final Set<String> names = scaled.getCdhServices("cluster1").getItems().stream()
+            .map(CdhService::getName)
+            .collect(Collectors.toSet());
+
+        // then
+        assertEquals(2 * recorded, names.size());
+    }
+
+    private byte[] load(String name) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
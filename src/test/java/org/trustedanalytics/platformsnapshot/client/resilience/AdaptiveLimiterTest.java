@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void testGrowsWhileResponsesStayFast() throws InterruptedException {
+        // given
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("tap", 2, 1, 10, 2.0, 0.5);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            final int inFlight = limiter.acquire(0);
+            limiter.onSuccess(FAST, Math.max(inFlight, limiter.getLimit()));
+        }
+
+        // then
+        assertEquals(6, limiter.getLimit());
+    }
+
+    @Test
+    public void testDoesNotGrowWhenLimitIsNotUsed() throws InterruptedException {
+        // given
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("tap", 4, 1, 10, 2.0, 0.5);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            limiter.onSuccess(FAST, limiter.acquire(0));
+        }
+
+        // then
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testShrinksWhenResponsesSlowDown() throws InterruptedException {
+        // given
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("cdh", 8, 1, 10, 2.0, 0.5);
+        limiter.onSuccess(FAST, limiter.acquire(0));
+
+        // when
+        limiter.onSuccess(SLOW, limiter.acquire(0));
+
+        // then
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testNeverShrinksBelowMinimum() throws InterruptedException {
+        // given
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("cdh", 2, 1, 10, 2.0, 0.5);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(0);
+            limiter.onDropped();
+        }
+
+        // then
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testTimesOutWhenLimitIsReached() throws InterruptedException {
+        // given
+        final AdaptiveLimiter limiter = new AdaptiveLimiter("cdh", 1, 1, 10, 2.0, 0.5);
+        limiter.acquire(0);
+
+        // when
+        final int inFlight = limiter.acquire(10);
+
+        // then
+        assertEquals(0, inFlight);
+    }
+
+    @Test
+    public void testClientCountsServiceUnavailableAsRejection() throws IOException {
+        // given
+        final Client delegate = mock(Client.class);
+        when(delegate.execute(any(), any())).thenReturn(
+            Response.create(503, "Service Unavailable", Collections.emptyMap(), new byte[0]));
+        final AdaptiveLimiters limiters = new AdaptiveLimiters(host -> new AdaptiveLimiter(host, 8, 1, 10, 2.0, 0.5));
+        final Client client = new LimitingClient(delegate, limiters, 0);
+
+        // when
+        client.execute(request("https://cdh.example.com:7183/api/v10/clusters"), new Request.Options());
+
+        // then
+        final AdaptiveLimiter limiter = limiters.forHost("cdh.example.com");
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testClientReleasesWhenBodyIsClosed() throws IOException {
+        // given
+        final Client delegate = mock(Client.class);
+        when(delegate.execute(any(), any())).thenReturn(Response.create(200, "OK", Collections.emptyMap(),
+            new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)), 2));
+        final AdaptiveLimiters limiters = new AdaptiveLimiters(host -> new AdaptiveLimiter(host, 8, 1, 10, 2.0, 0.5));
+        final Client client = new LimitingClient(delegate, limiters, 0);
+        final AdaptiveLimiter limiter = limiters.forHost("tap.example.com");
+
+        // when
+        final Response response = client.execute(request("https://tap.example.com/v3/applications"),
+            new Request.Options());
+        final int inFlightWhileReading = limiter.getInFlight();
+        response.body().asInputStream().close();
+        response.body().close();
+
+        // then
+        assertEquals(1, inFlightWhileReading);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testClientReleasesOnConnectionFailure() throws IOException {
+        // given
+        final Client delegate = mock(Client.class);
+        when(delegate.execute(any(), any())).thenThrow(new ConnectException("Connection refused"));
+        final AdaptiveLimiters limiters = new AdaptiveLimiters(host -> new AdaptiveLimiter(host, 8, 1, 10, 2.0, 0.5));
+        final Client client = new LimitingClient(delegate, limiters, 0);
+
+        // when
+        try {
+            client.execute(request("https://cdh.example.com:7183/api/v10/clusters"), new Request.Options());
+        } catch (ConnectException expected) {
+        }
+
+        // then
+        assertEquals(0, limiters.forHost("cdh.example.com").getInFlight());
+    }
+
+    private static Request request(String url) {
+        return Request.create("GET", url, Collections.emptyMap(), null, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker("cdh", 10, 4, 0.5, 30_000, 2, now::get);
+    }
+
+    @Test
+    public void testOpensWhenFailureRateReached() {
+        // given
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        // when
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            breaker.acquirePermission();
+            breaker.onFailure();
+        }
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testForgetsFailuresOutsideOfWindow() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            breaker.acquirePermission();
+            breaker.onFailure();
+        }
+        now.addAndGet(11_000);
+
+        // when
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test(expected = CircuitOpenException.class)
+    public void testRejectsWhileOpen() {
+        // given
+        open();
+        now.addAndGet(29_000);
+
+        // when
+        breaker.acquirePermission();
+    }
+
+    @Test
+    public void testClosesAfterSuccessfulProbes() {
+        // given
+        open();
+        now.addAndGet(30_000);
+
+        // when
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        final boolean thirdRejected = rejected();
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        // then
+        assertTrue(thirdRejected);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testReopensAfterFailedProbe() {
+        // given
+        open();
+        now.addAndGet(30_000);
+
+        // when
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(rejected());
+    }
+
+    @Test
+    public void testGuardFailsFastWhenOpen() {
+        // given
+        open();
+        final AtomicInteger calls = new AtomicInteger();
+        final Guard guard = new Guard(breaker, new Bulkhead("cdh-version", 1));
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        // when
+        guard.protect(Observable.defer(() -> {
+            calls.incrementAndGet();
+            return Observable.just("5.7.1");
+        })).subscribe(subscriber);
+
+        // then
+        subscriber.assertError(CircuitOpenException.class);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testGuardRejectsCallsOverBulkheadLimit() {
+        // given
+        final Bulkhead bulkhead = new Bulkhead("cdh-snapshot", 1);
+        final Guard guard = new Guard(breaker, bulkhead);
+        final PublishSubject<String> slow = PublishSubject.create();
+        final TestSubscriber<String> first = new TestSubscriber<>();
+        final TestSubscriber<String> second = new TestSubscriber<>();
+
+        // when
+        guard.protect(slow).subscribe(first);
+        guard.protect(slow).subscribe(second);
+        slow.onCompleted();
+
+        // then
+        second.assertError(BulkheadFullException.class);
+        first.assertCompleted();
+        assertEquals(1, bulkhead.getAvailable());
+    }
+
+    @Test
+    public void testGuardRecordsErrorsAsFailures() {
+        // given
+        final Guard guard = new Guard(breaker, new Bulkhead("cdh-snapshot", 10));
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            guard.protect(Observable.error(new IOException("Connection refused"))).subscribe(new TestSubscriber<>());
+        }
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testGuardRecordsErrorsAfterFirstElementAsFailures() {
+        // given
+        final Guard guard = new Guard(breaker, new Bulkhead("tap-snapshot", 10));
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            guard.protect(Observable.just("page1").concatWith(Observable.error(new IOException("Connection reset"))))
+                .subscribe(new TestSubscriber<>());
+        }
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testGuardFailsCallsWhichDoNotRespondInTime() {
+        // given
+        final TestScheduler scheduler = new TestScheduler();
+        final Bulkhead bulkhead = new Bulkhead("cdh-version", 10);
+        final Guard guard = new Guard(breaker, bulkhead, 1000, scheduler);
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            guard.protect(Observable.<String>never()).subscribe(new TestSubscriber<>());
+        }
+        guard.protect(Observable.<String>never()).subscribe(subscriber);
+        scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+        // then
+        subscriber.assertError(TimeoutException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(10, bulkhead.getAvailable());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.acquirePermission();
+            breaker.onFailure();
+        }
+    }
+
+    private boolean rejected() {
+        try {
+            breaker.acquirePermission();
+            return false;
+        } catch (CircuitOpenException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.resilience;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgingTest {
+
+    private TestScheduler scheduler;
+    private Hedging hedging;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        hedging = new Hedging(0.9, 10, 100, 50, scheduler);
+    }
+
+    @Test
+    public void testDoesNotHedgeWithoutEnoughSamples() {
+        // given
+        final AtomicInteger calls = new AtomicInteger();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        // when
+        hedging.hedge("tap.info", () -> {
+            calls.incrementAndGet();
+            return Observable.<String>never();
+        }).subscribe(subscriber);
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDuplicateWinsWhenOriginalStalls() {
+        // given
+        warmUp("tap.info", 200);
+        final AtomicInteger calls = new AtomicInteger();
+        final TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        // when
+        hedging.hedge("tap.info", () -> calls.incrementAndGet() == 1
+            ? Observable.<String>never()
+            : Observable.just("0.8.0")).subscribe(subscriber);
+        scheduler.advanceTimeBy(199, TimeUnit.MILLISECONDS);
+        subscriber.assertNoValues();
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        // then
+        subscriber.assertValue("0.8.0");
+        subscriber.assertCompleted();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testNoDuplicateWhenOriginalRespondsInTime() {
+        // given
+        warmUp("cdh.clusters", 200);
+        final AtomicInteger calls = new AtomicInteger();
+        final TestSubscriber<Long> subscriber = new TestSubscriber<>();
+
+        // when
+        hedging.hedge("cdh.clusters", () -> {
+            calls.incrementAndGet();
+            return Observable.timer(100, TimeUnit.MILLISECONDS, scheduler);
+        }).subscribe(subscriber);
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        // then
+        subscriber.assertValueCount(1);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testWaitsAtLeastMinimumDelay() {
+        // given
+        warmUp("tap.info", 0);
+        final AtomicInteger calls = new AtomicInteger();
+
+        // when
+        hedging.hedge("tap.info", () -> {
+            calls.incrementAndGet();
+            return Observable.<String>never();
+        }).subscribe(new TestSubscriber<>());
+        scheduler.advanceTimeBy(49, TimeUnit.MILLISECONDS);
+
+        // then
+        assertEquals(1, calls.get());
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testDoesNotRecordLatencyOfFailedCalls() {
+        // given
+        warmUp("tap.info", 200);
+        for (int i = 0; i < 100; i++) {
+            hedging.hedge("tap.info", () -> Observable.<String>error(new IOException("Connection refused")))
+                .subscribe(new TestSubscriber<>());
+        }
+        final AtomicInteger calls = new AtomicInteger();
+
+        // when
+        hedging.hedge("tap.info", () -> {
+            calls.incrementAndGet();
+            return Observable.<String>never();
+        }).subscribe(new TestSubscriber<>());
+        scheduler.advanceTimeBy(199, TimeUnit.MILLISECONDS);
+
+        // then
+        assertEquals(1, calls.get());
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(2, calls.get());
+    }
+
+    private void warmUp(String operation, long latencyMillis) {
+        for (int i = 0; i < 10; i++) {
+            hedging.hedge(operation, () -> Observable.timer(latencyMillis, TimeUnit.MILLISECONDS, scheduler))
+                .subscribe(new TestSubscriber<>());
+            scheduler.advanceTimeBy(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.client.uaa;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenHolderTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final Queue<Runnable> pendingRefreshes = new ArrayDeque<>();
+
+    private TokenHolder holder;
+
+    @Before
+    public void setUp() {
+        holder = new TokenHolder(() -> token("token-" + fetches.incrementAndGet(), 100L),
+            Runnable::run, now::get);
+    }
+
+    @Test
+    public void testServesTokenUntilRefreshPoint() {
+        // given
+        holder.get();
+
+        // when
+        now.addAndGet(79_000);
+        final AccessTokenResponse token = holder.get();
+
+        // then
+        assertEquals("token-1", token.getAccessToken());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testServesValidTokenWhileRefreshing() {
+        // given
+        final AtomicBoolean deferred = new AtomicBoolean();
+        holder = new TokenHolder(() -> token("token-" + fetches.incrementAndGet(), 100L), task -> {
+            if (deferred.get()) {
+                pendingRefreshes.add(task);
+            } else {
+                task.run();
+            }
+        }, now::get);
+        holder.get();
+        deferred.set(true);
+        now.addAndGet(80_000);
+
+        // when
+        final AccessTokenResponse during = holder.get();
+        final AccessTokenResponse again = holder.get();
+        final int refreshes = pendingRefreshes.size();
+        pendingRefreshes.poll().run();
+        final AccessTokenResponse after = holder.get();
+
+        // then
+        assertEquals("token-1", during.getAccessToken());
+        assertEquals("token-1", again.getAccessToken());
+        assertEquals(1, refreshes);
+        assertEquals("token-2", after.getAccessToken());
+    }
+
+    @Test
+    public void testUsesDefaultLifetimeWithoutExpiresIn() {
+        // given
+        holder = new TokenHolder(() -> token("token-" + fetches.incrementAndGet(), null), Runnable::run, now::get);
+        holder.get();
+
+        // when
+        now.addAndGet(TimeUnit.SECONDS.toMillis(TokenHolder.DEFAULT_LIFETIME_SECONDS));
+        final AccessTokenResponse token = holder.get();
+
+        // then
+        assertEquals("token-2", token.getAccessToken());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneFetch() throws Exception {
+        // given
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService refresher = Executors.newSingleThreadExecutor();
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        holder = new TokenHolder(() -> {
+            fetching.countDown();
+            await(release);
+            return token("token-" + fetches.incrementAndGet(), 100L);
+        }, refresher, now::get);
+
+        // when
+        final List<Future<AccessTokenResponse>> tokens = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tokens.add(callers.submit(holder::get));
+        }
+        fetching.await(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // then
+        for (Future<AccessTokenResponse> token : tokens) {
+            assertEquals("token-1", token.get(5, TimeUnit.SECONDS).getAccessToken());
+        }
+        assertEquals(1, fetches.get());
+        callers.shutdownNow();
+        refresher.shutdownNow();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedFetchWithoutValidTokenFails() {
+        // given
+        holder = new TokenHolder(() -> {
+            throw new IllegalStateException("UAA unavailable");
+        }, Runnable::run, now::get);
+
+        // when
+        holder.get();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static AccessTokenResponse token(String value, Long expiresIn) {
+        final AccessTokenResponse response = new AccessTokenResponse();
+        response.setAccessToken(value);
+        response.setExpiresIn(expiresIn);
+        return response;
+    }
+}
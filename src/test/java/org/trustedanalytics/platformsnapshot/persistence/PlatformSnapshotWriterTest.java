@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
+import org.trustedanalytics.platformsnapshot.model.SourceStatus;
+import org.trustedanalytics.platformsnapshot.model.TapApplicationArtifact;
+import org.trustedanalytics.platformsnapshot.service.SnapshotConfiguration;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PlatformSnapshotWriterTest {
+
+    @Mock
+    PlatformSnapshotRepository repository;
+
+    @Mock
+    NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    JdbcOperations jdbcOperations;
+
+    @Mock
+    EntityManager entityManager;
+
+    PlatformSnapshotWriter writer;
+
+    @Before
+    public void setUp() {
+        final SnapshotConfiguration configuration = new SnapshotConfiguration();
+        configuration.setIncrementalPersistence(true);
+        writer = new PlatformSnapshotWriter(repository, jdbcTemplate, configuration);
+        writer.setEntityManager(entityManager);
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(repository.save(any(PlatformSnapshot.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+    }
+
+    @Test
+    public void testUnchangedArtifactsAreShared() {
+        // given
+        final PlatformSnapshot header = createHeader();
+        final TapApplicationArtifact unchanged = createApplication("app-1", "RUNNING");
+        final TapApplicationArtifact changed = createApplication("app-2", "STOPPED");
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class))).thenReturn(ImmutableList.<Map<String, Object>>of(
+            ImmutableMap.<String, Object>of("ID", 7L, "CONTENT_HASH", unchanged.computeContentHash())));
+        doAnswer(invocation -> {
+            ((TapApplicationArtifact) invocation.getArguments()[0]).setId(8L);
+            return null;
+        }).when(entityManager).persist(changed);
+
+        // when
+        writer.appendApplications(header, ImmutableList.of(unchanged, changed));
+
+        // then
+        verify(entityManager, never()).persist(unchanged);
+        final ArgumentCaptor<List> memberships = ArgumentCaptor.forClass(List.class);
+        verify(jdbcOperations).batchUpdate(anyString(), memberships.capture());
+        final List<Object[]> rows = memberships.getValue();
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[] {1L, 7L}, rows.get(0));
+        assertArrayEquals(new Object[] {1L, 8L}, rows.get(1));
+        verify(jdbcOperations).update(anyString(), eq(2), eq(1), eq(1L));
+    }
+
+    @Test
+    public void testPreviousArtifactIsSharedOnceAcrossBatches() {
+        // given
+        final PlatformSnapshot header = createHeader();
+        final TapApplicationArtifact first = createApplication("app-1", "RUNNING");
+        final TapApplicationArtifact duplicate = createApplication("app-1", "RUNNING");
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class))).thenReturn(ImmutableList.<Map<String, Object>>of(
+            ImmutableMap.<String, Object>of("ID", 7L, "CONTENT_HASH", first.computeContentHash())));
+        doAnswer(invocation -> {
+            ((TapApplicationArtifact) invocation.getArguments()[0]).setId(8L);
+            return null;
+        }).when(entityManager).persist(duplicate);
+
+        // when
+        writer.appendApplications(header, ImmutableList.of(first));
+        writer.appendApplications(header, ImmutableList.of(duplicate));
+
+        // then
+        verify(entityManager, never()).persist(first);
+        verify(entityManager).persist(duplicate);
+        final ArgumentCaptor<List> memberships = ArgumentCaptor.forClass(List.class);
+        verify(jdbcOperations, times(2)).batchUpdate(anyString(), memberships.capture());
+        assertArrayEquals(new Object[] {1L, 7L}, (Object[]) memberships.getAllValues().get(0).get(0));
+        assertArrayEquals(new Object[] {1L, 8L}, (Object[]) memberships.getAllValues().get(1).get(0));
+        verify(jdbcOperations).update(anyString(), eq(1), eq(0), eq(1L));
+        verify(jdbcOperations).update(anyString(), eq(1), eq(1), eq(1L));
+    }
+
+    @Test
+    public void testCompleteStoresHeaderAttributes() {
+        // given
+        final PlatformSnapshot header = createHeader();
+        when(repository.findOne(header.getId())).thenReturn(createHeader());
+        header.setPlatformVersion("0.8");
+        header.setK8sVersion("1.3");
+
+        // when
+        final PlatformSnapshot completed = writer.complete(header);
+
+        // then
+        verify(repository).save(eq(completed));
+        assertEquals("0.8", completed.getPlatformVersion());
+        assertEquals("1.3", completed.getK8sVersion());
+        assertNotNull(completed.getCompletedAt());
+    }
+
+    @Test
+    public void testCompleteCountsRemovedArtifactsOfCompleteSources() {
+        // given
+        final PlatformSnapshot header = createHeader();
+        header.setSourceStatus(ImmutableMap.of(SnapshotSource.TAP_SERVICES, SourceStatus.FAILED));
+        when(repository.findOne(header.getId())).thenReturn(createHeader());
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class))).thenReturn(2L);
+
+        // when
+        final PlatformSnapshot completed = writer.complete(header);
+
+        // then
+        assertEquals(Long.valueOf(4L), completed.getRemovedArtifacts());
+    }
+
+    @Test
+    public void testDiscardRemovesHeaderAndOrphanedArtifacts() {
+        // given
+        final PlatformSnapshot header = createHeader();
+
+        // when
+        writer.discard(header);
+
+        // then
+        verify(jdbcOperations).update("DELETE FROM SNAPSHOT_TAP_APPLICATION WHERE SNAPSHOT_ID = ?", 1L);
+        verify(jdbcOperations).update("DELETE FROM PLATFORM_SNAPSHOT WHERE ID = ? AND COMPLETED_AT IS NULL", 1L);
+        verify(repository).deleteOrphanedApplicationArtifacts();
+        verify(repository).deleteOrphanedCdhServiceArtifacts();
+        verify(repository).deleteOrphanedCfServiceArtifacts();
+    }
+
+    private PlatformSnapshot createHeader() {
+        return PlatformSnapshot.builder().id(1L).createdAt(new Date()).build();
+    }
+
+    private TapApplicationArtifact createApplication(String guid, String state) {
+        final TapApplicationArtifact artifact = new TapApplicationArtifact();
+        artifact.setGuid(guid);
+        artifact.setName(guid);
+        artifact.setState(state);
+        return artifact;
+    }
+}
@@ -37,6 +37,7 @@ import java.util.Optional;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PlatformSnapshotControllerTest {
@@ -100,6 +101,13 @@ public class PlatformSnapshotControllerTest {
         verify(platformSnapshotScheduler).trigger();
     }
 
+    @Test
+    public void testGetSnapshotJob() {
+        when(platformSnapshotScheduler.findJob("job")).thenReturn(Optional.empty());
+        platformSnapshotController.getSnapshotJob("job");
+        verify(platformSnapshotScheduler).findJob("job");
+    }
+
     @Test
     public void testComparePlatformSnapshots() throws Exception {
         platformSnapshotController.compareSnapshots(1L, 2L, Optional.<String>empty());
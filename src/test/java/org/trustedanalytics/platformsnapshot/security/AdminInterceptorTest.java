@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.JoseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdminInterceptorTest {
+
+    private final AtomicLong now = new AtomicLong(1_500_000_000_000L);
+    private OAuth2TokenSupplier tokenSupplier;
+    private JwtConsumer jwtConsumer;
+    private AdminInterceptor interceptor;
+
+    @Before
+    public void setUp() {
+        tokenSupplier = mock(OAuth2TokenSupplier.class);
+        jwtConsumer = spy(new JwtConsumerBuilder()
+            .setSkipAllValidators()
+            .setDisableRequireSignature()
+            .setSkipSignatureVerification()
+            .build());
+        interceptor = new AdminInterceptor(tokenSupplier, jwtConsumer, now::get);
+    }
+
+    @Test
+    public void testAcceptsAdminScopeList() throws Exception {
+        // given
+        when(tokenSupplier.get()).thenReturn(token(Arrays.asList("tap.user", "tap.admin"), 3600));
+
+        // when
+        final boolean admin = interceptor.preHandle(null, null, null);
+
+        // then
+        assertTrue(admin);
+    }
+
+    @Test
+    public void testAcceptsAdminScopeString() throws Exception {
+        // given
+        when(tokenSupplier.get()).thenReturn(token("openid tap.admin", 3600));
+
+        // when
+        final boolean admin = interceptor.preHandle(null, null, null);
+
+        // then
+        assertTrue(admin);
+    }
+
+    @Test
+    public void testRejectsScopeContainingAdminScope() throws Exception {
+        // given
+        when(tokenSupplier.get()).thenReturn(token(Arrays.asList("tap.admin.readonly"), 3600));
+
+        // when
+        final boolean admin = interceptor.preHandle(null, null, null);
+
+        // then
+        assertFalse(admin);
+    }
+
+    @Test
+    public void testSkipsParsingOfCachedToken() throws Exception {
+        // given
+        when(tokenSupplier.get()).thenReturn(token(Arrays.asList("tap.admin"), 3600));
+        interceptor.preHandle(null, null, null);
+
+        // when
+        final boolean admin = interceptor.preHandle(null, null, null);
+
+        // then
+        assertTrue(admin);
+        verify(jwtConsumer, times(1)).processToClaims(anyString());
+    }
+
+    @Test
+    public void testParsesTokenAgainAfterExpiration() throws Exception {
+        // given
+        when(tokenSupplier.get()).thenReturn(token(Arrays.asList("tap.admin"), 60));
+        interceptor.preHandle(null, null, null);
+        now.addAndGet(60_000);
+
+        // when
+        interceptor.preHandle(null, null, null);
+
+        // then
+        verify(jwtConsumer, times(2)).processToClaims(anyString());
+    }
+
+    @Test
+    public void testCachesDecisionsPerToken() throws Exception {
+        // given
+        final String admin = token(Arrays.asList("tap.admin"), 3600);
+        final String user = token(Arrays.asList("tap.user"), 3600);
+        when(tokenSupplier.get()).thenReturn(admin, user, admin, user);
+
+        // when
+        final boolean first = interceptor.preHandle(null, null, null);
+        final boolean second = interceptor.preHandle(null, null, null);
+        final boolean third = interceptor.preHandle(null, null, null);
+        final boolean fourth = interceptor.preHandle(null, null, null);
+
+        // then
+        assertTrue(first && third);
+        assertFalse(second || fourth);
+        verify(jwtConsumer, times(2)).processToClaims(anyString());
+    }
+
+    private String token(Object scope, long lifetimeSeconds) throws JoseException {
+        final JwtClaims claims = new JwtClaims();
+        claims.setSubject("admin");
+        claims.setClaim("scope", scope);
+        claims.setExpirationTime(NumericDate.fromMilliseconds(now.get() + lifetimeSeconds * 1000));
+
+        final JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKey(new HmacKey(new byte[32]));
+        return jws.getCompactSerialization();
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2016 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.jose4j.http.SimpleGet;
+import org.jose4j.http.SimpleResponse;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.lang.JoseException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LocalJwtTokenServicesTest {
+
+    private static final String KEY_URI = "https://uaa.example.com/token_keys";
+
+    private RsaJsonWebKey signingKey;
+    private SimpleGet http;
+    private SigningKeys signingKeys;
+    private LocalJwtTokenServices tokenServices;
+
+    @Before
+    public void setUp() throws JoseException {
+        signingKey = RsaJwkGenerator.generateJwk(2048);
+        signingKey.setKeyId("key-1");
+        http = mock(SimpleGet.class);
+        signingKeys = new SigningKeys(KEY_URI, http, Runnable::run);
+        tokenServices = new LocalJwtTokenServices(signingKeys);
+    }
+
+    @Test
+    public void testAuthenticatesTokenSignedWithPublishedKey() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+
+        // when
+        final OAuth2Authentication authentication = tokenServices.loadAuthentication(token(signingKey, 3600));
+
+        // then
+        assertEquals("admin", authentication.getName());
+        assertTrue(authentication.getOAuth2Request().getScope().contains("tap.admin"));
+        assertTrue(authentication.getOAuth2Request().getResourceIds().contains("tap"));
+    }
+
+    @Test
+    public void testUnderstandsSingleKeyOfTokenKeyEndpoint() throws Exception {
+        // given
+        publish(200, signingKey.toJson(JsonWebKey.OutputControlLevel.PUBLIC_ONLY));
+        signingKeys.refresh();
+
+        // when
+        final OAuth2Authentication authentication = tokenServices.loadAuthentication(token(signingKey, 3600));
+
+        // then
+        assertEquals("admin", authentication.getName());
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void testRejectsTokenSignedWithUnknownKey() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+        final RsaJsonWebKey otherKey = RsaJwkGenerator.generateJwk(2048);
+        otherKey.setKeyId("key-2");
+
+        // when
+        tokenServices.loadAuthentication(token(otherKey, 3600));
+    }
+
+    @Test
+    public void testUnknownKeyTriggersRefresh() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+        final RsaJsonWebKey rotatedKey = RsaJwkGenerator.generateJwk(2048);
+        rotatedKey.setKeyId("key-2");
+        publish(200, new JsonWebKeySet(signingKey, rotatedKey).toJson());
+        try {
+            tokenServices.loadAuthentication(token(rotatedKey, 3600));
+        } catch (InvalidTokenException expected) {
+        }
+
+        // when
+        final OAuth2Authentication authentication = tokenServices.loadAuthentication(token(rotatedKey, 3600));
+
+        // then
+        assertEquals("admin", authentication.getName());
+    }
+
+    @Test
+    public void testUnknownKeyRefreshIsRateLimited() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+        final RsaJsonWebKey otherKey = RsaJwkGenerator.generateJwk(2048);
+        otherKey.setKeyId("key-2");
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            try {
+                tokenServices.loadAuthentication(token(otherKey, 3600));
+            } catch (InvalidTokenException expected) {
+            }
+        }
+
+        // then
+        verify(http, times(2)).get(KEY_URI);
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void testRejectsExpiredToken() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+
+        // when
+        tokenServices.loadAuthentication(token(signingKey, -3600));
+    }
+
+    @Test
+    public void testKeepsKeysWhenRefreshFails() throws Exception {
+        // given
+        publish(200, new JsonWebKeySet(signingKey).toJson());
+        signingKeys.refresh();
+        publish(503, "");
+        signingKeys.refresh();
+
+        // when
+        final OAuth2Authentication authentication = tokenServices.loadAuthentication(token(signingKey, 3600));
+
+        // then
+        assertEquals("admin", authentication.getName());
+    }
+
+    private void publish(int status, String body) throws IOException {
+        final SimpleResponse response = mock(SimpleResponse.class);
+        when(response.getStatusCode()).thenReturn(status);
+        when(response.getBody()).thenReturn(body);
+        when(http.get(anyString())).thenReturn(response);
+    }
+
+    private static String token(RsaJsonWebKey key, long lifetimeSeconds) throws JoseException {
+        final JwtClaims claims = new JwtClaims();
+        claims.setClaim("user_name", "admin");
+        claims.setClaim("client_id", "platform-snapshot");
+        claims.setClaim("scope", Arrays.asList("tap.admin", "openid"));
+        claims.setClaim("aud", Arrays.asList("tap"));
+        claims.setExpirationTime(NumericDate.fromMilliseconds(System.currentTimeMillis() + lifetimeSeconds * 1000));
+
+        final JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setKeyIdHeaderValue(key.getKeyId());
+        jws.setKey(key.getPrivateKey());
+        return jws.getCompactSerialization();
+    }
+}
@@ -19,6 +19,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang.time.DateUtils;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -39,6 +40,7 @@ import java.util.Optional;
 
 import static de.danielbechler.diff.node.DiffNode.State;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -98,6 +100,7 @@ public class PlatformSnapshotDiffTest {
     public void testDiffWithNotExistingSnapshots() throws IOException {
         final PlatformSnapshot before = readObjectFromFile(mapper, "snapshot_before.json", PlatformSnapshot.class);
         final PlatformSnapshot after = readObjectFromFile(mapper, "snapshot_after.json", PlatformSnapshot.class);
+        before.setCompletedAt(date);
         when(repository.findOne(before.getId())).thenReturn(before);
 
         exception.expect(IllegalArgumentException.class);
@@ -105,6 +108,19 @@ public class PlatformSnapshotDiffTest {
         service.diff(before.getId(), after.getId());
     }
 
+    @Test
+    public void testDiffWithSnapshotInProgress() {
+        final PlatformSnapshot before = createPlatformSnapshot(1L, date, ImmutableList.of(), ImmutableList.of(), ImmutableList.of());
+        final PlatformSnapshot after = createPlatformSnapshot(2L, date, ImmutableList.of(), ImmutableList.of(), ImmutableList.of());
+        after.setCompletedAt(null);
+        when(repository.findOne(before.getId())).thenReturn(before);
+        when(repository.findOne(after.getId())).thenReturn(after);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage(String.format("Snapshot with id %s does not exist", after.getId()));
+        service.diff(before.getId(), after.getId());
+    }
+
     @Test
     public void testDeletedSingleCloudFoundryComponent() {
         //given
@@ -251,7 +267,70 @@ public class PlatformSnapshotDiffTest {
         assertTrue(diff.getComponents().stream().filter(c -> "service-catalog".equalsIgnoreCase(c.getArtifact())).allMatch(c -> State.CHANGED.toString().equals(c.getOperation())));
     }
 
+    @Test
+    public void testServiceWithoutClusterMatchesServiceOfCluster() {
+        //given
+        final CdhServiceArtifact artifactBefore = createCdhServiceArtifact(Optional.of("hue"), Optional.of("started"));
+        final PlatformSnapshot before = createPlatformSnapshot(1L, date, ImmutableList.of(), ImmutableList.of(artifactBefore), ImmutableList.of());
+
+        final CdhServiceArtifact artifactAfter = createCdhServiceArtifact(Optional.of("hue"), Optional.of("started"));
+        artifactAfter.setClusterName("cluster1");
+        final PlatformSnapshot after = createPlatformSnapshot(2L, date, ImmutableList.of(), ImmutableList.of(artifactAfter), ImmutableList.of());
+
+        mockRepository(after, before);
+
+        //when
+        final FlattenPlatformSnapshotDiff diff = (FlattenPlatformSnapshotDiff) service.diff(before.getId(), after.getId());
+
+        //then
+        assertTrue(diff.getComponents().isEmpty());
+    }
+
+    @Test
+    public void testIncompleteCategoryIsSkipped() {
+        //given
+        final CdhServiceArtifact artifactBefore = createCdhServiceArtifact(Optional.of("hue"), Optional.of("started"));
+        final PlatformSnapshot before = createPlatformSnapshot(1L, date, ImmutableList.of(), ImmutableList.of(artifactBefore), ImmutableList.of());
+
+        final PlatformSnapshot after = createPlatformSnapshot(2L, date, ImmutableList.of(), ImmutableList.of(), ImmutableList.of());
+        after.setSourceStatus(ImmutableMap.of(SnapshotSource.CDH_SERVICES, SourceStatus.TIMED_OUT));
+
+        mockRepository(after, before);
+
+        //when
+        final FlattenPlatformSnapshotDiff diff = (FlattenPlatformSnapshotDiff) service.diff(before.getId(), after.getId());
+
+        //then
+        assertTrue(diff.getComponents().isEmpty());
+    }
+
+    @Test
+    public void testFailedClusterDoesNotHideServicesOfOtherClusters() {
+        //given
+        final CdhServiceArtifact hueBefore = createCdhServiceArtifact(Optional.of("hue"), Optional.of("started"));
+        hueBefore.setClusterName("cluster1");
+        final CdhServiceArtifact yarnBefore = createCdhServiceArtifact(Optional.of("yarn"), Optional.of("started"));
+        yarnBefore.setClusterName("cluster2");
+        final PlatformSnapshot before = createPlatformSnapshot(1L, date, ImmutableList.of(), ImmutableList.of(hueBefore, yarnBefore), ImmutableList.of());
+
+        final CdhServiceArtifact hueAfter = createCdhServiceArtifact(Optional.of("hue"), Optional.of("stopped"));
+        hueAfter.setClusterName("cluster1");
+        final PlatformSnapshot after = createPlatformSnapshot(2L, date, ImmutableList.of(), ImmutableList.of(hueAfter), ImmutableList.of());
+        after.setCdhClusterStatus(ImmutableMap.of("cluster1", SourceStatus.COMPLETE, "cluster2", SourceStatus.FAILED));
+
+        mockRepository(after, before);
+
+        //when
+        final FlattenPlatformSnapshotDiff diff = (FlattenPlatformSnapshotDiff) service.diff(before.getId(), after.getId());
+
+        //then
+        assertFalse(diff.getComponents().isEmpty());
+        assertTrue(diff.getComponents().stream().allMatch(c -> State.CHANGED.toString().equals(c.getOperation())));
+    }
+
     private void mockRepository(PlatformSnapshot after, PlatformSnapshot before) {
+        after.setCompletedAt(date);
+        before.setCompletedAt(date);
         when(repository.findOne(after.getId())).thenReturn(after);
         when(repository.findOne(before.getId())).thenReturn(before);
     }
@@ -300,6 +379,7 @@ public class PlatformSnapshotDiffTest {
         return PlatformSnapshot.builder().id(id)
                 .platformVersion("0.8")
                 .createdAt(date)
+                .completedAt(date)
                 .k8sVersion("0.7.1")
                 .tapServices(tapArtifacts)
                 .cdhVersion("0.4.2")
@@ -16,11 +16,22 @@
 package org.trustedanalytics.platformsnapshot.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableSet;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -31,16 +42,32 @@ import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhService;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhServices;
 import org.trustedanalytics.platformsnapshot.client.entity.*;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
 import org.trustedanalytics.platformsnapshot.model.CdhServiceArtifact;
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+import org.trustedanalytics.platformsnapshot.model.SnapshotJob;
+import org.trustedanalytics.platformsnapshot.model.SnapshotSource;
+import org.trustedanalytics.platformsnapshot.model.SourceStatus;
 import org.trustedanalytics.platformsnapshot.model.TapServiceArtifact;
-import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotRepository;
+import org.trustedanalytics.platformsnapshot.persistence.PlatformSnapshotWriter;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotScheduleStore;
+import org.trustedanalytics.platformsnapshot.persistence.SnapshotTriggerQueue;
 import rx.Observable;
 import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PlatformSnapshotSchedulerTest {
@@ -51,51 +78,126 @@ public class PlatformSnapshotSchedulerTest {
     TapOperations tapOperations;
 
     @Mock
-    PlatformSnapshotRepository platformSnapshotRepository;
+    PlatformSnapshotWriter platformSnapshotWriter;
 
     @Mock
     CdhOperations cdhOperations;
 
+    @Mock
+    LeaderElection leaderElection;
+
+    @Mock
+    SnapshotTriggerQueue triggerQueue;
+
+    @Mock
+    SnapshotScheduleStore scheduleStore;
+
     @Before
     public void setUp() {
-        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotRepository, cdhOperations);
+        when(leaderElection.isLeader()).thenReturn(true);
+        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotWriter, cdhOperations,
+            leaderElection, triggerQueue, scheduleStore, UpstreamGuards.disabled(), new SnapshotConfiguration());
     }
 
     @Test
-    public void testCdhCluster() {
+    public void testCdhClusters() {
+        // given
+        final CdhClusters clusters = getCdhClusters(getCdhCluster("cluster1"));
+        clusters.getItems().add(getCdhCluster("cluster2"));
         // when
-        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
-        CdhCluster actualCdhCluster = platformSnapshotScheduler.cdhCluster();
+        when(cdhOperations.getCdhClusters()).thenReturn(clusters);
+        List<CdhCluster> actualCdhClusters = platformSnapshotScheduler.cdhClusters().toList().toBlocking().single();
         // then
-        assertEquals(getCdhCluster(), actualCdhCluster);
+        assertEquals(Arrays.asList(getCdhCluster("cluster1"), getCdhCluster("cluster2")), actualCdhClusters);
     }
 
     @Test
-    public void testCdhClusterNoCluster() {
+    public void testCdhClustersNoCluster() {
         // when
         when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(null));
-        CdhCluster actualCdhCluster = platformSnapshotScheduler.cdhCluster();
+        List<CdhCluster> actualCdhClusters = platformSnapshotScheduler.cdhClusters().toList().toBlocking().single();
         // then
-        assertEquals(null, actualCdhCluster);
+        assertTrue(actualCdhClusters.isEmpty());
     }
 
     @Test
-    public void testCdhClusterNoClusters() {
+    public void testCdhClustersNoClusters() {
         // when
         when(cdhOperations.getCdhClusters()).thenReturn(null);
-        CdhCluster actualCdhCluster = platformSnapshotScheduler.cdhCluster();
+        final TestSubscriber<CdhCluster> testSubscriber = new TestSubscriber<>();
+        platformSnapshotScheduler.cdhClusters().subscribe(testSubscriber);
         // then
-        assertEquals(new CdhCluster(), actualCdhCluster);
+        testSubscriber.assertError(NullPointerException.class);
     }
 
     @Test
-    public void testCdhClusterOnError() {
+    public void testCdhClustersOnError() {
         // when
         when(cdhOperations.getCdhClusters()).thenThrow(new IllegalStateException());
-        CdhCluster actualCdhCluster = platformSnapshotScheduler.cdhCluster();
-        CdhCluster expectedCdhCluster = new CdhCluster();
+        final TestSubscriber<CdhCluster> testSubscriber = new TestSubscriber<>();
+        platformSnapshotScheduler.cdhClusters().subscribe(testSubscriber);
+        // then
+        testSubscriber.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void testCollectTagsServicesAndVersionWithCluster() {
+        // given
+        final CdhClusters clusters = getCdhClusters(getCdhCluster("cluster1"));
+        clusters.getItems().add(getCdhCluster("cluster2"));
+        when(cdhOperations.getCdhClusters()).thenReturn(clusters);
+        when(cdhOperations.getCdhServices(any())).thenAnswer(invocation -> getCdhServices());
+        when(tapOperations.getApplications()).thenReturn(Observable.empty());
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        final PlatformSnapshot snapshot = platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
+        // then
+        final ArgumentCaptor<List> cdhServices = ArgumentCaptor.forClass(List.class);
+        verify(platformSnapshotWriter).appendCdhServices(eq(header), cdhServices.capture());
+        final List<CdhServiceArtifact> artifacts = cdhServices.getValue();
+        assertEquals(ImmutableSet.of("cluster1/cdhService", "cluster2/cdhService"),
+            artifacts.stream().map(CdhServiceArtifact::key).collect(Collectors.toSet()));
+        assertEquals("cluster1:5.7.1,cluster2:5.7.1", snapshot.getCdhVersion());
+    }
+
+    @Test
+    public void testCdhServicesOfClustersStayWithinBulkhead() {
+        // given
+        final ResilienceConfiguration resilience = new ResilienceConfiguration();
+        resilience.setHedging(false);
+        resilience.setSnapshotConcurrency(1);
+        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotWriter, cdhOperations,
+            leaderElection, triggerQueue, scheduleStore, new UpstreamGuards(resilience, Schedulers.io()),
+            new SnapshotConfiguration());
+        final CdhClusters clusters = getCdhClusters(getCdhCluster("cluster1"));
+        clusters.getItems().add(getCdhCluster("cluster2"));
+        clusters.getItems().add(getCdhCluster("cluster3"));
+        when(cdhOperations.getCdhClusters()).thenReturn(clusters);
+        when(cdhOperations.getCdhServices(any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return getCdhServices();
+        });
+        when(tapOperations.getApplications()).thenReturn(Observable.empty());
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        final PlatformSnapshot snapshot = platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
         // then
-        assertEquals(expectedCdhCluster, actualCdhCluster);
+        final ArgumentCaptor<List> cdhServices = ArgumentCaptor.forClass(List.class);
+        verify(platformSnapshotWriter).appendCdhServices(eq(header), cdhServices.capture());
+        assertEquals(3, cdhServices.getValue().size());
+        assertEquals(SourceStatus.COMPLETE, snapshot.getSourceStatus().get(SnapshotSource.CDH_SERVICES));
     }
 
     @Test
@@ -128,7 +230,323 @@ public class PlatformSnapshotSchedulerTest {
         final TestSubscriber<TapServiceArtifact> testSubscriber = new TestSubscriber<>();
         platformSnapshotScheduler.tapServices().subscribe(testSubscriber);
         // then
-        testSubscriber.assertValue(new TapServiceArtifact());
+        testSubscriber.assertError(NullPointerException.class);
+        testSubscriber.assertNoValues();
+    }
+
+    @Test
+    public void testFailedClusterOnlyMarksItsOwnServicesIncomplete() {
+        // given
+        final CdhClusters clusters = getCdhClusters(getCdhCluster("cluster1"));
+        clusters.getItems().add(getCdhCluster("cluster2"));
+        when(cdhOperations.getCdhClusters()).thenReturn(clusters);
+        when(cdhOperations.getCdhServices("cluster1")).thenReturn(getCdhServices());
+        when(cdhOperations.getCdhServices("cluster2")).thenThrow(new IllegalStateException());
+        when(tapOperations.getApplications()).thenReturn(Observable.empty());
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        final PlatformSnapshot snapshot = platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
+        // then
+        final ArgumentCaptor<List> cdhServices = ArgumentCaptor.forClass(List.class);
+        verify(platformSnapshotWriter).appendCdhServices(eq(header), cdhServices.capture());
+        assertEquals(1, cdhServices.getValue().size());
+        assertEquals(SourceStatus.COMPLETE, snapshot.getSourceStatus().get(SnapshotSource.CDH_SERVICES));
+        assertEquals(SourceStatus.COMPLETE, snapshot.getCdhClusterStatus().get("cluster1"));
+        assertEquals(SourceStatus.FAILED, snapshot.getCdhClusterStatus().get("cluster2"));
+    }
+
+    @Test
+    public void testCollectStoresIncompleteSources() {
+        // given
+        final SnapshotConfiguration configuration = new SnapshotConfiguration();
+        configuration.getSourceTimeouts().put(SnapshotSource.TAP_APPLICATIONS.name(), 1L);
+        platformSnapshotScheduler = new PlatformSnapshotScheduler(tapOperations, platformSnapshotWriter, cdhOperations,
+            leaderElection, triggerQueue, scheduleStore, UpstreamGuards.disabled(), configuration);
+
+        when(tapOperations.getApplications()).thenReturn(Observable.never());
+        when(tapOperations.getServices()).thenReturn(Observable.error(new IllegalStateException()));
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(cdhOperations.getCdhServices(any())).thenReturn(getCdhServices());
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        final PlatformSnapshot snapshot = platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
+        // then
+        assertEquals(SourceStatus.TIMED_OUT, snapshot.getSourceStatus().get(SnapshotSource.TAP_APPLICATIONS));
+        assertEquals(SourceStatus.FAILED, snapshot.getSourceStatus().get(SnapshotSource.TAP_SERVICES));
+        assertEquals(SourceStatus.COMPLETE, snapshot.getSourceStatus().get(SnapshotSource.CDH_SERVICES));
+        verify(platformSnapshotWriter, never()).appendApplications(any(), any());
+        verify(platformSnapshotWriter, never()).appendTapServices(any(), any());
+    }
+
+    @Test
+    public void testCollectSubscribesToSourcesConcurrently() {
+        // given
+        final CountDownLatch servicesRequested = new CountDownLatch(1);
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        when(tapOperations.getApplications()).thenAnswer(invocation -> {
+            overlapped.set(servicesRequested.await(5, TimeUnit.SECONDS));
+            return Observable.empty();
+        });
+        when(tapOperations.getServices()).thenAnswer(invocation -> {
+            servicesRequested.countDown();
+            return Observable.empty();
+        });
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(cdhOperations.getCdhServices(any())).thenReturn(getCdhServices());
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
+        // then
+        assertTrue(overlapped.get());
+        final ArgumentCaptor<List> cdhServices = ArgumentCaptor.forClass(List.class);
+        verify(platformSnapshotWriter).appendCdhServices(eq(header), cdhServices.capture());
+        assertEquals(1, cdhServices.getValue().size());
+    }
+
+    @Test
+    public void testCollectAppendsArtifactsInBatches() {
+        // given
+        final List<TapService> services = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            services.add(getCfService());
+        }
+        final TapInfo tapInfo = new TapInfo();
+        tapInfo.setPlatformVersion("0.8");
+        when(tapOperations.getApplications()).thenReturn(Observable.empty());
+        when(tapOperations.getServices()).thenReturn(Observable.from(services));
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(tapInfo));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(cdhOperations.getCdhServices(any())).thenReturn(getCdhServices());
+
+        final PlatformSnapshot header = new PlatformSnapshot();
+        when(platformSnapshotWriter.complete(header)).thenReturn(header);
+
+        // when
+        final PlatformSnapshot snapshot = platformSnapshotScheduler.collect(new SnapshotJob(), header).toBlocking().single();
+
+        // then
+        final ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(platformSnapshotWriter, times(3)).appendTapServices(eq(header), batches.capture());
+        assertEquals(Arrays.asList(100, 100, 50),
+            batches.getAllValues().stream().map(List::size).collect(Collectors.toList()));
+        verify(platformSnapshotWriter, never()).appendApplications(any(), any());
+        assertEquals("0.8", snapshot.getPlatformVersion());
+    }
+
+    @Test
+    public void testTriggerMergesIntoRunningJob() {
+        // given
+        final CountDownLatch release = new CountDownLatch(1);
+        when(tapOperations.getApplications()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Observable.empty();
+        });
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(cdhOperations.getCdhServices(any())).thenReturn(getCdhServices());
+
+        // when
+        final SnapshotJob first = platformSnapshotScheduler.trigger();
+        final SnapshotJob second = platformSnapshotScheduler.trigger();
+        release.countDown();
+
+        // then
+        assertEquals(first.getId(), second.getId());
+        assertEquals(first, platformSnapshotScheduler.findJob(first.getId()).get());
+    }
+
+    @Test
+    public void testTriggerIsForwardedWhenNotLeader() {
+        // given
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        // when
+        final SnapshotJob job = platformSnapshotScheduler.trigger();
+
+        // then
+        assertEquals(SnapshotJob.Phase.FORWARDED, job.getPhase());
+        verify(triggerQueue).forward(job.getId());
+        verify(tapOperations, never()).getApplications();
+    }
+
+    @Test
+    public void testForwardedTriggersAreMergedIntoOneJob() {
+        // given
+        final CountDownLatch release = new CountDownLatch(1);
+        when(tapOperations.getApplications()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Observable.empty();
+        });
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(triggerQueue.drain()).thenReturn(Arrays.asList("first", "second"));
+
+        // when
+        platformSnapshotScheduler.consumeForwardedTriggers();
+        release.countDown();
+
+        // then
+        final SnapshotJob first = platformSnapshotScheduler.findJob("first").get();
+        assertEquals(first, platformSnapshotScheduler.findJob("second").get());
+    }
+
+    @Test
+    public void testForwardedTriggersMergeIntoRunningJob() throws InterruptedException {
+        // given
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(tapOperations.getApplications()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Observable.empty();
+        });
+        when(tapOperations.getServices()).thenReturn(Observable.empty());
+        when(tapOperations.getTapInfo()).thenReturn(Observable.just(new TapInfo()));
+        when(cdhOperations.getCdhClusters()).thenReturn(getCdhClusters(getCdhCluster()));
+        when(triggerQueue.drain()).thenReturn(Arrays.asList("forwarded"));
+        final SnapshotJob running = platformSnapshotScheduler.trigger();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // when
+        platformSnapshotScheduler.consumeForwardedTriggers();
+        release.countDown();
+
+        // then
+        assertEquals(running, platformSnapshotScheduler.findJob("forwarded").get());
+        verify(triggerQueue).updateStatus(eq(ImmutableSet.of(running.getId(), "forwarded")),
+            eq(SnapshotJob.Phase.COLLECTING), any());
+    }
+
+    @Test
+    public void testForwardedJobReportsStatusOfLeader() {
+        // given
+        when(leaderElection.isLeader()).thenReturn(false);
+        final SnapshotJob forwarded = platformSnapshotScheduler.trigger();
+        when(triggerQueue.findStatus(forwarded.getId()))
+            .thenReturn(Optional.of(SnapshotJob.stored(forwarded.getId(), SnapshotJob.Phase.COMPLETED, 5L, new Date())));
+
+        // when
+        final SnapshotJob job = platformSnapshotScheduler.findJob(forwarded.getId()).get();
+
+        // then
+        assertEquals(SnapshotJob.Phase.COMPLETED, job.getPhase());
+        assertEquals(Long.valueOf(5L), job.getSnapshotId());
+    }
+
+    @Test
+    public void testFailedSnapshotIsDiscarded() {
+        // given
+        final PlatformSnapshot header = PlatformSnapshot.builder().id(1L).build();
+        when(platformSnapshotWriter.begin(any())).thenReturn(header);
+        when(platformSnapshotWriter.complete(header)).thenThrow(new IllegalStateException());
+
+        // when
+        final SnapshotJob job = platformSnapshotScheduler.trigger();
+
+        // then
+        verify(platformSnapshotWriter, timeout(1000)).discard(header);
+        assertEquals(SnapshotJob.Phase.FAILED, job.getPhase());
+    }
+
+    @Test
+    public void testMissedSnapshotIsCaughtUpOnLeadership() {
+        // given
+        final Date missed = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.of(missed));
+        when(scheduleStore.tryStartCatchUp(any(), anyLong())).thenReturn(true);
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(platformSnapshotWriter, timeout(1000)).begin(any());
+        verify(scheduleStore, timeout(1000)).setNextRunAt(any());
+    }
+
+    @Test
+    public void testSnapshotWithoutHistoryIsCaughtUp() {
+        // given
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.empty());
+        when(scheduleStore.lastCompletedSnapshotAt()).thenReturn(Optional.empty());
+        when(scheduleStore.tryStartCatchUp(any(), anyLong())).thenReturn(true);
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(platformSnapshotWriter, timeout(1000)).begin(any());
+    }
+
+    @Test
+    public void testSnapshotOnScheduleIsNotCaughtUp() {
+        // given
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.empty());
+        when(scheduleStore.lastCompletedSnapshotAt()).thenReturn(Optional.of(new Date()));
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(scheduleStore, never()).tryStartCatchUp(any(), anyLong());
+        verify(platformSnapshotWriter, never()).begin(any());
+    }
+
+    @Test
+    public void testStoredScheduleIsResumedOnLeadership() {
+        // given
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.of(new Date(System.currentTimeMillis() + 200)));
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(scheduleStore, never()).tryStartCatchUp(any(), anyLong());
+        verify(platformSnapshotWriter, timeout(2000)).begin(any());
+    }
+
+    @Test
+    public void testCatchUpIsDebounced() {
+        // given
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.of(new Date(0)));
+        when(scheduleStore.tryStartCatchUp(any(), anyLong())).thenReturn(false);
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(platformSnapshotWriter, never()).begin(any());
+    }
+
+    @Test
+    public void testCatchUpRunsOnlyWhenLeadershipIsGained() {
+        // given
+        when(scheduleStore.nextRunAt()).thenReturn(Optional.of(new Date(0)));
+        when(scheduleStore.tryStartCatchUp(any(), anyLong())).thenReturn(true);
+
+        // when
+        platformSnapshotScheduler.checkLeadership();
+        platformSnapshotScheduler.checkLeadership();
+
+        // then
+        verify(scheduleStore, times(1)).tryStartCatchUp(any(), anyLong());
     }
 
     private TapService getCfService() {
@@ -155,7 +573,13 @@ public class PlatformSnapshotSchedulerTest {
     }
 
     private CdhCluster getCdhCluster() {
+        return getCdhCluster("cluster");
+    }
+
+    private CdhCluster getCdhCluster(String name) {
         CdhCluster item = new CdhCluster();
+        item.setName(name);
+        item.setFullVersion("5.7.1");
         item.setClusterUrl("url");
         return item;
     }
@@ -23,6 +23,7 @@ import org.trustedanalytics.platformsnapshot.client.cdh.CdhOperations;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhCluster;
 import org.trustedanalytics.platformsnapshot.client.cdh.entity.CdhClusters;
 import org.trustedanalytics.platformsnapshot.client.entity.TapInfo;
+import org.trustedanalytics.platformsnapshot.client.resilience.UpstreamGuards;
 import org.trustedanalytics.platformsnapshot.model.PlatformVersion;
 
 import com.google.common.collect.ImmutableSet;
@@ -31,6 +32,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import rx.Observable;
@@ -49,6 +51,11 @@ public class PlatformVersionSupplierTest {
                     versionsFromTapInfo("1.0", "1.2"), cdhVersion("1.1"),// tapVersion("1.2"),
                     // then
                     new PlatformVersion("1.0", "1.1", "1.2")},
+                {"more cloudera clusters",
+                    // given
+                    versionsFromTapInfo("1.0", "1.2"), cdhVersions("1.1", "1.3"),
+                    // then
+                    new PlatformVersion("1.0", "cluster0:1.1,cluster1:1.3", "1.2")},
                 {"cloud foundry request failed",
                     // given
                     versionsFromTapInfo(null, "1.2"), cdhVersion("1.1"), // tapVersion("1.2"),
@@ -91,7 +98,7 @@ public class PlatformVersionSupplierTest {
 
         // given
         final PlatformVersionSupplier supplier =
-            new PlatformVersionSupplier(tapOperations, cdhOperations);
+            new PlatformVersionSupplier(tapOperations, cdhOperations, UpstreamGuards.disabled());
 
         // when
         final Observable<PlatformVersion> observable = supplier.get();
@@ -124,6 +131,17 @@ public class PlatformVersionSupplierTest {
         return cdhOperations;
     }
 
+    private static CdhOperations cdhVersions(String... cdhVersions) {
+        CdhOperations cdhOperations = mock(CdhOperations.class);
+        CdhClusters clusters = new CdhClusters();
+        clusters.setItems(new ArrayList<>());
+        for (int i = 0; i < cdhVersions.length; i++) {
+            clusters.getItems().add(new CdhCluster("entityStatus", "cluster" + i, "displayName", "version", cdhVersions[i], false, "clusterUrl", "hostUrl"));
+        }
+        when(cdhOperations.getCdhClusters()).thenReturn(clusters);
+        return cdhOperations;
+    }
+
     private static CdhOperations cdhVersion() {
         CdhOperations cdhOperations = mock(CdhOperations.class);
         when(cdhOperations.getCdhClusters()).thenThrow(new IllegalStateException());
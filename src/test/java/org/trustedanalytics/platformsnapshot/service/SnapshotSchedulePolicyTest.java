@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2015 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustedanalytics.platformsnapshot.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.trustedanalytics.platformsnapshot.model.PlatformSnapshot;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+public class SnapshotSchedulePolicyTest {
+
+    private SnapshotConfiguration configuration;
+    private Date now;
+
+    @Before
+    public void setUp() {
+        configuration = new SnapshotConfiguration();
+        now = Date.from(LocalDateTime.of(2016, 9, 1, 10, 30).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    public void testInterval() {
+        // given
+        configuration.setScheduleIntervalMinutes(90);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        final long delay = policy.nextDelayMillis(now);
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(90), delay);
+    }
+
+    @Test
+    public void testIntervalWithJitter() {
+        // given
+        configuration.setScheduleIntervalMinutes(90);
+        configuration.setScheduleJitterMinutes(10);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        final long delay = policy.nextDelayMillis(now);
+
+        // then
+        assertTrue(delay >= TimeUnit.MINUTES.toMillis(90));
+        assertTrue(delay <= TimeUnit.MINUTES.toMillis(100));
+    }
+
+    @Test
+    public void testNextRunAfter() {
+        // given
+        configuration.setScheduleIntervalMinutes(90);
+        configuration.setScheduleJitterMinutes(10);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        final Date next = policy.nextRunAfter(now);
+
+        // then
+        assertEquals(now.getTime() + TimeUnit.MINUTES.toMillis(90), next.getTime());
+    }
+
+    @Test
+    public void testCron() {
+        // given
+        configuration.setScheduleCron("0 0 2 * * *");
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        final long delay = policy.nextDelayMillis(now);
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(15 * 60 + 30), delay);
+    }
+
+    @Test
+    public void testAdaptiveIntervalShrinksWithChurn() {
+        // given
+        configuration.setAdaptiveSchedule(true);
+        configuration.setScheduleIntervalMinutes(240);
+        configuration.setAdaptiveMinIntervalMinutes(100);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        policy.snapshotCompleted(snapshot(100, 20));
+        policy.snapshotCompleted(snapshot(100, 20));
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(100), policy.getIntervalMillis());
+    }
+
+    @Test
+    public void testAdaptiveIntervalGrowsWhenQuiet() {
+        // given
+        configuration.setAdaptiveSchedule(true);
+        configuration.setScheduleIntervalMinutes(240);
+        configuration.setAdaptiveMaxIntervalMinutes(600);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        policy.snapshotCompleted(snapshot(100, 0));
+        policy.snapshotCompleted(snapshot(100, 0));
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(600), policy.getIntervalMillis());
+    }
+
+    @Test
+    public void testAdaptiveIntervalKeptForModerateChurn() {
+        // given
+        configuration.setAdaptiveSchedule(true);
+        configuration.setScheduleIntervalMinutes(240);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        policy.snapshotCompleted(snapshot(100, 3));
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(240), policy.getIntervalMillis());
+    }
+
+    @Test
+    public void testAdaptiveIntervalShrinksWithRemovals() {
+        // given
+        configuration.setAdaptiveSchedule(true);
+        configuration.setScheduleIntervalMinutes(240);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+        final PlatformSnapshot snapshot = snapshot(80, 0);
+        snapshot.setRemovedArtifacts(20L);
+
+        // when
+        policy.snapshotCompleted(snapshot);
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(120), policy.getIntervalMillis());
+    }
+
+    @Test
+    public void testRestoredIntervalIsBounded() {
+        // given
+        configuration.setAdaptiveSchedule(true);
+        configuration.setAdaptiveMaxIntervalMinutes(600);
+        final SnapshotSchedulePolicy policy = new SnapshotSchedulePolicy(configuration);
+
+        // when
+        policy.restoreInterval(TimeUnit.MINUTES.toMillis(6000));
+
+        // then
+        assertEquals(TimeUnit.MINUTES.toMillis(600), policy.getIntervalMillis());
+    }
+
+    private PlatformSnapshot snapshot(long total, long changed) {
+        return PlatformSnapshot.builder().totalArtifacts(total).changedArtifacts(changed).build();
+    }
+}
@@ -40,23 +40,53 @@ public class MockSnapshotRepo  implements PlatformSnapshotRepository{
         return null;
     }
 
+    @Override
+    public PlatformSnapshot findTopByCompletedAtNotNullOrderByCreatedAtDesc() {
+        return null;
+    }
+
     @Override
     public void deletePlatformSnapshotsOlderThen(Date date) {
 
     }
 
     @Override
-    public void deleteApplicationArtifacts(Date date) {
+    public void deleteApplicationMemberships(Date date) {
+
+    }
+
+    @Override
+    public void deleteCdhServiceMemberships(Date date) {
+
+    }
+
+    @Override
+    public void deleteCfServiceMemberships(Date date) {
+
+    }
+
+    @Override
+    public void deleteSourceStatuses(Date date) {
+
+    }
+
+    @Override
+    public void deleteCdhClusterStatuses(Date date) {
+
+    }
+
+    @Override
+    public void deleteOrphanedApplicationArtifacts() {
 
     }
 
     @Override
-    public void deleteCdhServiceArtifact(Date date) {
+    public void deleteOrphanedCdhServiceArtifacts() {
 
     }
 
     @Override
-    public void deleteCfServiceArtifact(Date date) {
+    public void deleteOrphanedCfServiceArtifacts() {
 
     }
 